@@ -34,6 +34,10 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
                         .requestMatchers("/v3/api-docs/**").permitAll()                                       
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADM")
+                        .requestMatchers("/api/sudoku/seed", "/api/word-search/seed").hasRole("ADM")
+                        .requestMatchers("/api/word-search/word-bank/reload", "/api/word-search/generate-large").hasRole("ADM")
                         .requestMatchers("/api/app-user/insert").hasRole("UNLOGGED")
                         .requestMatchers("/api/**").hasAnyRole("APP-USER", "ADM")
                 )
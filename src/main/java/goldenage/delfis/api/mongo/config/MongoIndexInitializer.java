@@ -0,0 +1,137 @@
+/*
+ * Classe MongoIndexInitializer
+ * Cria na inicialização os índices declarados nas entidades do Mongo e avisa sobre consultas sem índice
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.config;
+
+import goldenage.delfis.api.mongo.model.Sudoku;
+import goldenage.delfis.api.mongo.model.WordFrequency;
+import goldenage.delfis.api.mongo.model.WordSearch;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class MongoIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+    private static final List<Class<?>> ENTITIES = List.of(Sudoku.class, WordSearch.class, WordFrequency.class);
+
+    /*
+     * Formatos das consultas que rodam em produção. Cada uma é passada por um explain na inicialização;
+     * se o plano escolhido tiver COLLSCAN ou SORT em memória, falta índice para ela.
+     * Ao criar uma consulta nova nos services ou repositories, inclua o formato dela aqui.
+     * */
+    private static final List<QueryShape> QUERY_SHAPES = List.of(
+            new QueryShape(WordSearch.class, "claim do pool",
+                    new Document("poolStatus", "READY").append("gridSize", 10).append("theme", "animais"), null),
+            new QueryShape(WordSearch.class, "busca por palavras",
+                    new Document("normalizedWords", new Document("$in", List.of("JAVA"))).append("poolStatus", new Document("$ne", "READY")),
+                    new Document("_id", 1)),
+            new QueryShape(WordSearch.class, "listagem paginada dos entregues",
+                    new Document("poolStatus", new Document("$ne", "READY")).append("algorithmVersion", new Document("$ne", 1001)),
+                    new Document("_id", 1)),
+            new QueryShape(WordSearch.class, "listagem por data de criação",
+                    new Document(), new Document("createdAt", -1)),
+            new QueryShape(WordFrequency.class, "palavras mais usadas",
+                    new Document(), new Document("count", -1)),
+            new QueryShape(Sudoku.class, "sudokus com mais células preenchidas",
+                    new Document(), new Document("filledCellsCount", -1)),
+            new QueryShape(Sudoku.class, "sudokus por tipo e dificuldade",
+                    new Document("type", "SIXBYSIX"), new Document("filledCellsCount", -1))
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean queryCheckEnabled;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate,
+                                 @Value("${delfis.mongo.index-check.enabled:true}") boolean queryCheckEnabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.queryCheckEnabled = queryCheckEnabled;
+    }
+
+    /*
+     * Roda antes dos outros listeners de ApplicationReadyEvent, que fazem backfills e já se beneficiam dos índices.
+     * O createIndex do Mongo não faz nada quando o índice já existe com a mesma definição, então rodar a cada
+     * inicialização é seguro. Um índice com o mesmo nome e definição diferente só gera um erro no log,
+     * e precisa ser removido manualmente antes de ser recriado. Por isso os nomes nas anotações seguem o padrão
+     * do próprio Mongo (campo_direção), o mesmo dos índices que já existiam criados por ensureIndex.
+     * */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        for (Class<?> entity : ENTITIES) {
+            IndexOperations indexOperations = mongoTemplate.indexOps(entity);
+            indexResolver.resolveIndexFor(entity).forEach(index -> {
+                try {
+                    indexOperations.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    logger.error("Erro ao criar o índice {} em {}: {}", index.getIndexKeys().toJson(), entity.getSimpleName(), e.getMessage());
+                }
+            });
+        }
+
+        if (queryCheckEnabled) checkQueryPlans();
+    }
+
+    private void checkQueryPlans() {
+        for (QueryShape shape : QUERY_SHAPES) {
+            try {
+                Document find = new Document("find", mongoTemplate.getCollectionName(shape.entity())).append("filter", shape.filter());
+                if (shape.sort() != null) find.append("sort", shape.sort()).append("limit", 1);
+                Document explain = mongoTemplate.getDb().runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+
+                Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                String unindexedStage = findUnindexedStage(winningPlan);
+                if (unindexedStage != null)
+                    logger.warn("Consulta \"{}\" em {} roda sem índice ({}). Filtro: {}, ordenação: {}",
+                            shape.description(), shape.entity().getSimpleName(), unindexedStage,
+                            shape.filter().toJson(), shape.sort() == null ? "{}" : shape.sort().toJson());
+            } catch (RuntimeException e) {
+                logger.warn("Não foi possível verificar o plano da consulta \"{}\": {}", shape.description(), e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Percorre o plano (inputStage/inputStages) procurando estágios que leem ou ordenam sem índice.
+     * */
+    private static String findUnindexedStage(Document plan) {
+        if (plan == null) return null;
+
+        String stage = plan.getString("stage");
+        if ("COLLSCAN".equals(stage) || "SORT".equals(stage)) return stage;
+
+        String found = findUnindexedStage(plan.get("inputStage", Document.class));
+        if (found != null) return found;
+
+        List<Document> inputStages = plan.getList("inputStages", Document.class);
+        if (inputStages == null) return null;
+        for (Document inputStage : inputStages) {
+            found = findUnindexedStage(inputStage);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private record QueryShape(Class<?> entity, String description, Document filter, Document sort) {
+    }
+}
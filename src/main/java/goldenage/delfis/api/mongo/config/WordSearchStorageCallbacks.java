@@ -0,0 +1,71 @@
+/*
+ * Classe WordSearchStorageCallbacks
+ * Callbacks do Mongo que aplicam o modo de armazenamento do grid da entidade WordSearch
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.config;
+
+import goldenage.delfis.api.mongo.model.LargeWordSearchGenerator;
+import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchGridCodec;
+import goldenage.delfis.api.mongo.model.WordSearchStorageMode;
+import goldenage.delfis.api.mongo.service.WordSearchGridCache;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WordSearchStorageCallbacks implements BeforeSaveCallback<WordSearch>, AfterConvertCallback<WordSearch> {
+    private final WordSearchGridCache wordSearchGridCache;
+    private final WordSearchStorageMode storageMode;
+
+    public WordSearchStorageCallbacks(WordSearchGridCache wordSearchGridCache,
+                                      @Value("${delfis.word-search.storage-mode:PACKED}") WordSearchStorageMode storageMode) {
+        this.wordSearchGridCache = wordSearchGridCache;
+        this.storageMode = storageMode;
+    }
+
+    /*
+     * FULL salva só a string legada, PACKED só o grid de 5 bits e SEED nenhum dos dois:
+     * só a seed, o tamanho, as palavras e a versão do algoritmo.
+     * Caça-palavras do modo grande (ou qualquer um sem a string legada) só têm o grid de 5 bits,
+     * então ele é mantido em qualquer modo.
+     * A entidade em memória continua com o grid, então a resposta da request não muda.
+     * */
+    @Override
+    public WordSearch onBeforeSave(WordSearch entity, Document document, String collection) {
+        boolean packedOnly = entity.getGrid() == null || entity.getAlgorithmVersion() == LargeWordSearchGenerator.ALGORITHM_VERSION;
+        if (storageMode == WordSearchStorageMode.SEED && canRegenerate(entity)) {
+            document.remove("grid");
+            document.remove("packedGrid");
+        } else if (entity.getPackedGrid() != null && (storageMode != WordSearchStorageMode.FULL || packedOnly)) {
+            document.remove("grid");
+        } else {
+            document.remove("packedGrid");
+        }
+        return entity;
+    }
+
+    /*
+     * Remonta a string legada a partir do grid compactado ou, sem ele, regenera pela seed.
+     * Caça-palavras do modo grande ficam só compactados: eles são lidos pelo renderer em streaming.
+     * */
+    @Override
+    public WordSearch onAfterConvert(WordSearch entity, Document document, String collection) {
+        if (entity.getGrid() != null || entity.getAlgorithmVersion() == LargeWordSearchGenerator.ALGORITHM_VERSION) return entity;
+
+        if (entity.getPackedGrid() != null)
+            entity.setGrid(WordSearchGridCodec.toLegacyString(WordSearchGridCodec.unpack(entity.getPackedGrid(), entity.getGridSize())));
+        else if (canRegenerate(entity))
+            entity.setGrid(wordSearchGridCache.getGrid(entity.getGridSize(), entity.getWords(), entity.getSeed(), entity.getAlgorithmVersion()));
+        return entity;
+    }
+
+    private static boolean canRegenerate(WordSearch entity) {
+        return entity.getSeed() != null && entity.getWords() != null && entity.getAlgorithmVersion() == WordSearch.ALGORITHM_VERSION;
+    }
+}
@@ -7,9 +7,17 @@
 
 package goldenage.delfis.api.mongo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import goldenage.delfis.api.mongo.model.BulkInsertResult;
+import goldenage.delfis.api.mongo.model.CursorPage;
 import goldenage.delfis.api.mongo.model.Sudoku;
+import goldenage.delfis.api.mongo.model.SudokuSummary;
+import goldenage.delfis.api.mongo.model.SudokuType;
+import goldenage.delfis.api.mongo.service.MongoBulkInsertPipeline;
 import goldenage.delfis.api.mongo.service.SudokuService;
+import goldenage.delfis.api.mongo.util.NdjsonWriter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -17,8 +25,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -28,13 +38,16 @@ import java.util.List;
 public class SudokuController {
 
     private final SudokuService sudokuService;
+    private final ObjectMapper objectMapper;
 
-    public SudokuController(SudokuService sudokuService) {
+    public SudokuController(SudokuService sudokuService, ObjectMapper objectMapper) {
         this.sudokuService = sudokuService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/get-all")
-    @Operation(summary = "Obter todos os Sudokus", description = "Retorna uma lista de todos os Sudokus gerados.")
+    @Operation(summary = "Obter todos os Sudokus", deprecated = true,
+            description = "Retorna uma lista de todos os Sudokus gerados, carregando a coleção inteira em memória. Prefira /get-page ou /export.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de Sudokus encontrados", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Sudoku.class)))),
             @ApiResponse(responseCode = "404", description = "Nenhum Sudoku encontrado", content = @Content)
@@ -47,6 +60,57 @@ public class SudokuController {
         throw new EntityNotFoundException("Nenhum Sudoku encontrado.");
     }
 
+    @GetMapping("/get-page")
+    @Operation(summary = "Obter uma página de Sudokus", description = "Retorna os Sudokus ordenados pelo id, paginados por cursor. Envie o nextCursor recebido no parâmetro after para buscar a próxima página.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de Sudokus", content = @Content(schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor ou limite inválido", content = @Content)
+    })
+    public ResponseEntity<CursorPage<Sudoku>> getSudokusPage(
+            @Parameter(description = "Cursor retornado em nextCursor pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > 500) throw new IllegalArgumentException("limit deve estar entre 1 e 500.");
+        return ResponseEntity.status(HttpStatus.OK).body(sudokuService.getSudokusPage(after, limit));
+    }
+
+    @GetMapping("/get-summaries")
+    @Operation(summary = "Obter uma página de resumos de Sudokus", description = "Retorna id, tipo, dificuldade e data de criação dos Sudokus, sem os tabuleiros, paginados por cursor. Use /get-by-id para abrir um Sudoku.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de resumos", content = @Content(schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor ou limite inválido", content = @Content)
+    })
+    public ResponseEntity<CursorPage<SudokuSummary>> getSudokuSummaries(
+            @Parameter(description = "Cursor retornado em nextCursor pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > 1000) throw new IllegalArgumentException("limit deve estar entre 1 e 1000.");
+        return ResponseEntity.status(HttpStatus.OK).body(sudokuService.getSudokuSummariesPage(after, limit));
+    }
+
+    @GetMapping("/get-by-id/{id}")
+    @Operation(summary = "Obter um Sudoku pelo id", description = "Retorna o Sudoku completo, com o tabuleiro.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sudoku encontrado", content = @Content(schema = @Schema(implementation = Sudoku.class))),
+            @ApiResponse(responseCode = "404", description = "Sudoku não encontrado", content = @Content)
+    })
+    public ResponseEntity<Sudoku> getSudokuById(@PathVariable String id) {
+        Sudoku sudoku = sudokuService.getSudokuById(id);
+        if (sudoku == null) throw new EntityNotFoundException("Sudoku não encontrado.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(sudoku);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exportar todos os Sudokus", description = "Escreve todos os Sudokus em streaming, um JSON por linha (NDJSON), lendo direto do cursor do Mongo.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sudokus exportados", content = @Content(mediaType = NdjsonWriter.MEDIA_TYPE, schema = @Schema(implementation = Sudoku.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportSudokus() {
+        StreamingResponseBody body = outputStream -> NdjsonWriter.write(sudokuService.streamSudokus(), objectMapper, outputStream);
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE)).body(body);
+    }
+
     @PostMapping("/generate")
     @Operation(summary = "Gerar um novo Sudoku", description = "Gera um novo Sudoku com o tipo especificado.")
     @ApiResponses(value = {
@@ -56,6 +120,22 @@ public class SudokuController {
         return ResponseEntity.status(HttpStatus.OK).body(sudokuService.generateSudoku());
     }
 
+    @PostMapping("/seed")
+    @Operation(summary = "Gerar Sudokus em lote", description = "Gera Sudokus e grava em bulk inserts não ordenados. Restrito a administradores.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote gravado; falhas são reportadas por documento", content = @Content(schema = @Schema(implementation = BulkInsertResult.class))),
+            @ApiResponse(responseCode = "400", description = "Quantidade, tipo ou write concern inválido", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Fila de escrita cheia", content = @Content)
+    })
+    public ResponseEntity<BulkInsertResult> seedSudokus(
+            @RequestParam(name = "count") int count,
+            @RequestParam(name = "type", defaultValue = "SIXBYSIX") SudokuType type,
+            @Parameter(description = "Write concern do driver (W1, MAJORITY, UNACKNOWLEDGED, JOURNALED...). Sem ele, usa o padrão.")
+            @RequestParam(name = "writeConcern", required = false) String writeConcern) {
+        if (count <= 0 || count > 100000) throw new IllegalArgumentException("count deve estar entre 1 e 100000.");
+        return ResponseEntity.status(HttpStatus.OK).body(sudokuService.seedSudokus(count, type, MongoBulkInsertPipeline.parseWriteConcern(writeConcern)));
+    }
+
     @GetMapping("/get-sudokus-with-most-filled-cells")
     @Operation(
             summary = "Buscar Sudokus com Mais Células Preenchidas",
@@ -7,65 +7,360 @@
 
 package goldenage.delfis.api.mongo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import goldenage.delfis.api.mongo.model.BulkInsertResult;
+import goldenage.delfis.api.mongo.model.CursorPage;
+import goldenage.delfis.api.mongo.model.LargeWordSearchGenerator;
+import goldenage.delfis.api.mongo.model.PackedWordSearch;
+import goldenage.delfis.api.mongo.model.WordFrequency;
 import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchGuess;
+import goldenage.delfis.api.mongo.model.WordSearchGuessResult;
+import goldenage.delfis.api.mongo.model.WordSearchSummary;
+import goldenage.delfis.api.mongo.service.MongoBulkInsertPipeline;
+import goldenage.delfis.api.mongo.service.WordBankService;
 import goldenage.delfis.api.mongo.service.WordSearchService;
+import goldenage.delfis.api.mongo.util.LargeWordSearchJsonWriter;
+import goldenage.delfis.api.mongo.util.NdjsonWriter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/word-search")
 public class WordSearchController {
 
     private final WordSearchService wordSearchService;
+    private final WordBankService wordBankService;
+    private final ObjectMapper objectMapper;
 
-    public WordSearchController(WordSearchService wordSearchService) {
+    public WordSearchController(WordSearchService wordSearchService, WordBankService wordBankService, ObjectMapper objectMapper) {
         this.wordSearchService = wordSearchService;
+        this.wordBankService = wordBankService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/get-all")
-    @Operation(summary = "Obter todos os caça-palavras", description = "Retorna uma lista de todos os caça-palavras gerados.")
+    @Operation(summary = "Obter todos os caça-palavras", deprecated = true,
+            description = "Retorna uma lista de todos os caça-palavras gerados, carregando a coleção inteira em memória. Prefira /get-page ou /export. " +
+                    "Os do modo grande ficam de fora; eles são lidos por /get-large/{id}.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Lista de caça-palavras encontrados", content = @Content(array = @ArraySchema(schema = @Schema(implementation = WordSearch.class)))),
+            @ApiResponse(responseCode = "200", description = "Lista de caça-palavras encontrados", content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = WordSearch.class))),
+                    @Content(mediaType = PackedWordSearch.MEDIA_TYPE, array = @ArraySchema(schema = @Schema(implementation = PackedWordSearch.class)))
+            }),
             @ApiResponse(responseCode = "404", description = "Nenhum caça-palavras encontrado", content = @Content)
     })
-    public ResponseEntity<List<WordSearch>> getWordSearches() {
+    public ResponseEntity<?> getWordSearches(
+            @Parameter(description = "Use \"packed\" para receber o grid compactado em base64")
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
         List<WordSearch> wordSearches = wordSearchService.getWordSearches();
-        if (wordSearches != null && !wordSearches.isEmpty()) return ResponseEntity.status(HttpStatus.OK).body(wordSearches);
+        if (wordSearches == null || wordSearches.isEmpty()) throw new EntityNotFoundException("Nenhum caça-palavras encontrado.");
 
-        throw new EntityNotFoundException("Nenhum caça-palavras encontrado.");
+        if (!wantsPacked(format, accept)) return ResponseEntity.status(HttpStatus.OK).body(wordSearches);
+        return ResponseEntity.status(HttpStatus.OK).body(wordSearches.stream().map(WordSearchController::toPackedResponse).toList());
+    }
+
+    @GetMapping("/get-page")
+    @Operation(summary = "Obter uma página de caça-palavras", description = "Retorna os caça-palavras ordenados pelo id, paginados por cursor. Envie o nextCursor recebido no parâmetro after para buscar a próxima página. " +
+            "Os do modo grande ficam de fora; eles são lidos por /get-large/{id}.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de caça-palavras", content = @Content(schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor ou limite inválido", content = @Content)
+    })
+    public ResponseEntity<CursorPage<?>> getWordSearchesPage(
+            @Parameter(description = "Cursor retornado em nextCursor pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit,
+            @Parameter(description = "Use \"packed\" para receber o grid compactado em base64")
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (limit <= 0 || limit > 500) throw new IllegalArgumentException("limit deve estar entre 1 e 500.");
+
+        CursorPage<WordSearch> page = wordSearchService.getWordSearchesPage(after, limit);
+        if (!wantsPacked(format, accept)) return ResponseEntity.status(HttpStatus.OK).body(page);
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(new CursorPage<>(page.items().stream().map(WordSearchController::toPackedResponse).toList(), page.nextCursor()));
+    }
+
+    @GetMapping("/get-summaries")
+    @Operation(summary = "Obter uma página de resumos de caça-palavras", description = "Retorna id, tema, tamanho do grid e data de criação dos caça-palavras, sem os grids, paginados por cursor. Use /get-by-id para abrir um caça-palavras.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de resumos", content = @Content(schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor ou limite inválido", content = @Content)
+    })
+    public ResponseEntity<CursorPage<WordSearchSummary>> getWordSearchSummaries(
+            @Parameter(description = "Cursor retornado em nextCursor pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > 1000) throw new IllegalArgumentException("limit deve estar entre 1 e 1000.");
+        return ResponseEntity.status(HttpStatus.OK).body(wordSearchService.getWordSearchSummariesPage(after, limit));
+    }
+
+    @GetMapping("/get-by-id/{id}")
+    @Operation(summary = "Obter um caça-palavras pelo id", description = "Retorna o caça-palavras completo, com o grid. Os do modo grande são lidos por /get-large/{id}.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Caça-palavras encontrado", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = WordSearch.class)),
+                    @Content(mediaType = PackedWordSearch.MEDIA_TYPE, schema = @Schema(implementation = PackedWordSearch.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Caça-palavras do modo grande; use /get-large/{id}", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Caça-palavras não encontrado ou ainda não entregue pelo pool", content = @Content)
+    })
+    public ResponseEntity<?> getWordSearchById(
+            @PathVariable String id,
+            @Parameter(description = "Use \"packed\" para receber o grid compactado em base64")
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        WordSearch wordSearch = wordSearchService.getWordSearchById(id);
+        if (wordSearch == null) throw new EntityNotFoundException("Caça-palavras não encontrado.");
+        if (wordSearch.getAlgorithmVersion() == LargeWordSearchGenerator.ALGORITHM_VERSION)
+            throw new IllegalArgumentException("Caça-palavras do modo grande não tem o grid em string. Use /api/word-search/get-large/" + id + ".");
+
+        return ResponseEntity.status(HttpStatus.OK).body(wantsPacked(format, accept) ? toPackedResponse(wordSearch) : wordSearch);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exportar todos os caça-palavras", description = "Escreve todos os caça-palavras em streaming, um JSON por linha (NDJSON), lendo direto do cursor do Mongo. " +
+            "Os do modo grande ficam de fora; eles são lidos por /get-large/{id}.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Caça-palavras exportados", content = @Content(mediaType = NdjsonWriter.MEDIA_TYPE, schema = @Schema(implementation = WordSearch.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> exportWordSearches(
+            @Parameter(description = "Use \"packed\" para receber o grid compactado em base64")
+            @RequestParam(name = "format", required = false) String format) {
+        boolean packed = "packed".equalsIgnoreCase(format);
+        StreamingResponseBody body = outputStream -> {
+            Stream<WordSearch> wordSearches = wordSearchService.streamWordSearches();
+            NdjsonWriter.write(packed ? wordSearches.map(WordSearchController::toPackedResponse) : wordSearches, objectMapper, outputStream);
+        };
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE)).body(body);
     }
 
     @GetMapping("/get-occurrences-by-word/{word}")
     @Operation(summary = "Obter a contagem de ocorrências de uma palavra", description = "Retorna o número total de ocorrências da palavra especificada em todos os caça-palavras.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Contagem de ocorrências retornada com sucesso", content = @Content(schema = @Schema(implementation = Integer.class))),
+            @ApiResponse(responseCode = "200", description = "Contagem de ocorrências retornada com sucesso", content = @Content(schema = @Schema(implementation = Long.class))),
     })
-    public ResponseEntity<Integer> getOccurrencesByWord(@PathVariable String word) {
+    public ResponseEntity<Long> getOccurrencesByWord(@PathVariable String word) {
         return ResponseEntity.status(HttpStatus.OK).body(wordSearchService.countOccurrencesOfWord(word));
     }
 
+    @GetMapping("/get-most-used-words")
+    @Operation(summary = "Obter as palavras mais usadas", description = "Retorna as k palavras que mais apareceram nos caça-palavras, da mais usada para a menos usada.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Palavras encontradas", content = @Content(array = @ArraySchema(schema = @Schema(implementation = WordFrequency.class)))),
+            @ApiResponse(responseCode = "404", description = "Nenhuma palavra encontrada", content = @Content)
+    })
+    public ResponseEntity<List<WordFrequency>> getMostUsedWords(
+            @Parameter(description = "Quantidade de palavras", example = "10")
+            @RequestParam(name = "k", defaultValue = "10") int k) {
+        if (k <= 0 || k > 1000) throw new IllegalArgumentException("k deve estar entre 1 e 1000.");
+
+        List<WordFrequency> wordFrequencies = wordSearchService.getMostUsedWords(k);
+        if (wordFrequencies == null) throw new EntityNotFoundException("Nenhuma palavra encontrada.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(wordFrequencies);
+    }
+
+    @GetMapping("/find-by-words")
+    @Operation(summary = "Buscar caça-palavras que contêm palavras",
+            description = "Retorna os ids dos caça-palavras que contêm qualquer uma (match=ANY) ou todas (match=ALL) as palavras informadas, paginados por cursor. " +
+                    "Com countOnly=true retorna só a quantidade.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de ids ou quantidade encontrada", content = {
+                    @Content(schema = @Schema(implementation = CursorPage.class)),
+            }),
+            @ApiResponse(responseCode = "400", description = "Palavras, cursor ou limite inválidos", content = @Content)
+    })
+    public ResponseEntity<?> findWordSearchesByWords(
+            @RequestParam(name = "words") List<String> wordList,
+            @Parameter(description = "ANY (OR) ou ALL (AND)", example = "ANY")
+            @RequestParam(name = "match", defaultValue = "ANY") String match,
+            @Parameter(description = "Cursor retornado em nextCursor pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "50") int limit,
+            @RequestParam(name = "countOnly", defaultValue = "false") boolean countOnly) {
+        if (!match.equalsIgnoreCase("ANY") && !match.equalsIgnoreCase("ALL"))
+            throw new IllegalArgumentException("match deve ser ANY ou ALL.");
+        boolean matchAll = match.equalsIgnoreCase("ALL");
+
+        if (countOnly)
+            return ResponseEntity.status(HttpStatus.OK).body(wordSearchService.countWordSearchesByWords(wordList, matchAll));
+
+        if (limit <= 0 || limit > 500) throw new IllegalArgumentException("limit deve estar entre 1 e 500.");
+        return ResponseEntity.status(HttpStatus.OK).body(wordSearchService.findWordSearchIdsByWords(wordList, matchAll, after, limit));
+    }
+
     @PostMapping("/generate")
-    @Operation(summary = "Gerar um novo caça-palavras", description = "Gera um novo caça-palavras com o tamanho de grid especificado e a lista de palavras fornecida.")
+    @Operation(summary = "Gerar um novo caça-palavras", description = "Gera um novo caça-palavras com o tamanho de grid especificado. As palavras podem ser enviadas na lista ou sorteadas do banco de palavras pelo tema.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Caça-palavras gerado com sucesso", content = @Content(schema = @Schema(implementation = WordSearch.class))),
+            @ApiResponse(responseCode = "200", description = "Caça-palavras gerado com sucesso", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = WordSearch.class)),
+                    @Content(mediaType = PackedWordSearch.MEDIA_TYPE, schema = @Schema(implementation = PackedWordSearch.class))
+            }),
+            @ApiResponse(responseCode = "404", description = "Tema não encontrado no banco de palavras", content = @Content)
     })
-    public ResponseEntity<WordSearch> generateWordSearch(
+    public ResponseEntity<?> generateWordSearch(
             @RequestParam(name = "gridSize") int gridSize,
-            @RequestParam(name = "words") List<String> wordList) {
-        if (wordList == null || wordList.isEmpty()) throw new DataIntegrityViolationException("Lista de palavras vazia.");
+            @RequestParam(name = "words", required = false) List<String> wordList,
+            @RequestParam(name = "theme", required = false) String theme,
+            @Parameter(description = "Use \"packed\" para receber o grid compactado em base64")
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
         if (gridSize < 3) throw new DataIntegrityViolationException("Grid deve ser de no mínimo 4x4.");
 
-        return ResponseEntity.status(HttpStatus.OK).body(wordSearchService.generateWordSearch(gridSize, wordList));
+        WordSearch wordSearch;
+        if (wordList != null && !wordList.isEmpty()) {
+            wordSearch = wordSearchService.generateWordSearch(gridSize, wordList);
+        } else {
+            if (theme == null || theme.isBlank()) throw new DataIntegrityViolationException("Informe a lista de palavras ou um tema.");
+            wordSearch = wordSearchService.generateWordSearch(gridSize, theme);
+            if (wordSearch == null) throw new EntityNotFoundException("Tema não encontrado no banco de palavras.");
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(wantsPacked(format, accept) ? toPackedResponse(wordSearch) : wordSearch);
+    }
+
+    @PostMapping("/generate-large")
+    @Operation(summary = "Gerar um caça-palavras grande", description = "Gera um caça-palavras do modo mega puzzle (grid de 100x100 a 1000x1000) com palavras do banco de palavras. " +
+            "A resposta é escrita em streaming, com o grid como uma lista de linhas. Restrito a administradores.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Caça-palavras gerado com sucesso", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Quantidade de palavras maior que a do tema", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Tema não encontrado no banco de palavras", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> generateLargeWordSearch(
+            @RequestParam(name = "gridSize") int gridSize,
+            @RequestParam(name = "theme") String theme,
+            @Parameter(description = "Quantidade de palavras a sortear do tema. Sem ela, usa todas as palavras do tema que cabem no grid.", example = "40")
+            @RequestParam(name = "wordCount", required = false) Integer wordCount) {
+        if (gridSize < LargeWordSearchGenerator.MIN_GRID_SIZE || gridSize > LargeWordSearchGenerator.MAX_GRID_SIZE)
+            throw new DataIntegrityViolationException("Grid do modo grande deve ter entre " + LargeWordSearchGenerator.MIN_GRID_SIZE + " e " + LargeWordSearchGenerator.MAX_GRID_SIZE + ".");
+        if (wordCount != null && wordCount <= 0) throw new DataIntegrityViolationException("Quantidade de palavras deve ser positiva.");
+
+        WordSearch wordSearch = wordSearchService.generateLargeWordSearch(gridSize, theme, wordCount);
+        if (wordSearch == null) throw new EntityNotFoundException("Tema não encontrado no banco de palavras.");
+
+        return streamLarge(PackedWordSearch.from(wordSearch));
+    }
+
+    @PostMapping("/seed")
+    @Operation(summary = "Gerar caça-palavras em lote", description = "Gera caça-palavras do tema e grava em bulk inserts não ordenados. Eles entram como prontos no pool. Restrito a administradores.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote gravado; falhas são reportadas por documento", content = @Content(schema = @Schema(implementation = BulkInsertResult.class))),
+            @ApiResponse(responseCode = "400", description = "Quantidade, tamanho do grid ou write concern inválido", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Tema não encontrado no banco de palavras", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Fila de escrita cheia", content = @Content)
+    })
+    public ResponseEntity<BulkInsertResult> seedWordSearches(
+            @RequestParam(name = "count") int count,
+            @RequestParam(name = "gridSize") int gridSize,
+            @RequestParam(name = "theme") String theme,
+            @Parameter(description = "Write concern do driver (W1, MAJORITY, UNACKNOWLEDGED, JOURNALED...). Sem ele, usa o padrão.")
+            @RequestParam(name = "writeConcern", required = false) String writeConcern) {
+        if (count <= 0 || count > 100000) throw new IllegalArgumentException("count deve estar entre 1 e 100000.");
+        if (gridSize < WordSearch.MIN_GRID_SIZE || gridSize > WordSearch.MAX_GRID_SIZE)
+            throw new IllegalArgumentException("gridSize deve estar entre " + WordSearch.MIN_GRID_SIZE + " e " + WordSearch.MAX_GRID_SIZE + ".");
+
+        BulkInsertResult result = wordSearchService.seedWordSearches(count, gridSize, theme, MongoBulkInsertPipeline.parseWriteConcern(writeConcern));
+        if (result == null) throw new EntityNotFoundException("Tema não encontrado no banco de palavras.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    @GetMapping("/get-large/{id}")
+    @Operation(summary = "Obter um caça-palavras em streaming", description = "Retorna o caça-palavras com o grid como uma lista de linhas, escrito em streaming. Indicado para os grids grandes.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Caça-palavras encontrado", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "404", description = "Caça-palavras não encontrado ou ainda não entregue pelo pool", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> getLargeWordSearch(@PathVariable String id) {
+        WordSearch wordSearch = wordSearchService.getWordSearchById(id);
+        if (wordSearch == null) throw new EntityNotFoundException("Caça-palavras não encontrado.");
+
+        // A entidade vem do PuzzleCache e é compartilhada: o grid compactado fica só na resposta.
+        PackedWordSearch packedWordSearch = PackedWordSearch.from(wordSearch);
+        if (packedWordSearch == null) throw new IllegalArgumentException("Grid com caracteres fora de A-Z não pode ser enviado em streaming.");
+        return streamLarge(packedWordSearch);
+    }
+
+    @PostMapping("/check-answers/{id}")
+    @Operation(summary = "Verificar palavras em lote", description = "Verifica todas as palavras marcadas pelo jogador com uma única leitura do caça-palavras e retorna o resultado de cada uma, na ordem recebida.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Palavras verificadas", content = @Content(array = @ArraySchema(schema = @Schema(implementation = WordSearchGuessResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Lista de palavras vazia ou grande demais", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Caça-palavras não encontrado", content = @Content)
+    })
+    public ResponseEntity<List<WordSearchGuessResult>> checkAnswers(
+            @PathVariable String id,
+            @Valid @RequestBody List<@Valid WordSearchGuess> guesses) {
+        if (guesses.isEmpty() || guesses.size() > 1000) throw new IllegalArgumentException("Envie entre 1 e 1000 palavras.");
+
+        List<WordSearchGuessResult> results = wordSearchService.checkGuesses(id, guesses);
+        if (results == null) throw new EntityNotFoundException("Caça-palavras não encontrado.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(results);
+    }
+
+    @GetMapping("/word-bank/themes")
+    @Operation(summary = "Obter os temas do banco de palavras", description = "Retorna os temas disponíveis para geração de caça-palavras.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista de temas encontrada", content = @Content(array = @ArraySchema(schema = @Schema(implementation = String.class)))),
+            @ApiResponse(responseCode = "404", description = "Banco de palavras vazio", content = @Content)
+    })
+    public ResponseEntity<List<String>> getWordBankThemes() {
+        List<String> themes = wordBankService.getThemes();
+        if (themes.isEmpty()) throw new EntityNotFoundException("Banco de palavras vazio.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(themes);
+    }
+
+    @PostMapping("/word-bank/reload")
+    @Operation(summary = "Recarregar o banco de palavras", description = "Relê o arquivo do banco de palavras sem bloquear as gerações em andamento. Restrito a administradores.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Banco recarregado; retorna a quantidade de palavras", content = @Content(schema = @Schema(implementation = Integer.class))),
+    })
+    public ResponseEntity<Integer> reloadWordBank() {
+        return ResponseEntity.status(HttpStatus.OK).body(wordBankService.reload());
+    }
+
+    /*
+     * O formato compacto é pedido por ?format=packed ou pelo header Accept com o media type próprio.
+     * Sem isso, a resposta continua a legada, com o grid em string.
+     * */
+    private static boolean wantsPacked(String format, String accept) {
+        if (format != null) return format.equalsIgnoreCase("packed");
+        return accept != null && accept.contains(PackedWordSearch.MEDIA_TYPE);
+    }
+
+    /*
+     * Grids com caracteres fora de A-Z (listas de palavras livres) não cabem em 5 bits e seguem no formato legado.
+     * */
+    private static Object toPackedResponse(WordSearch wordSearch) {
+        PackedWordSearch packedWordSearch = PackedWordSearch.from(wordSearch);
+        return packedWordSearch != null ? packedWordSearch : wordSearch;
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamLarge(PackedWordSearch wordSearch) {
+        StreamingResponseBody body = outputStream -> LargeWordSearchJsonWriter.write(wordSearch, objectMapper.getFactory(), outputStream);
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
@@ -0,0 +1,37 @@
+/*
+ * Record BulkInsertResult
+ * Resultado de uma inserção em lote no Mongo, com as falhas por documento
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Resultado de uma inserção em lote.")
+public record BulkInsertResult(
+        @Schema(description = "Documentos enviados para inserção", example = "5000")
+        int requested,
+
+        @Schema(description = "Documentos inseridos com sucesso", example = "4998")
+        int inserted,
+
+        @Schema(description = "Documentos que falharam, com o motivo de cada um")
+        List<Failure> failures,
+
+        @Schema(description = "Tempo total da inserção, em milissegundos", example = "1350")
+        long elapsedMillis
+) {
+    @Schema(description = "Falha na inserção de um documento.")
+    public record Failure(
+            @Schema(description = "Id atribuído ao documento", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+            String id,
+
+            @Schema(description = "Motivo da falha", example = "E11000 duplicate key error")
+            String message
+    ) {
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Record CursorPage
+ * Página de resultados paginados por cursor
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Schema(description = "Página de resultados. Para buscar a próxima, envie nextCursor como o parâmetro after.")
+public record CursorPage<T>(
+        @Schema(description = "Itens da página")
+        List<T> items,
+
+        @Schema(description = "Cursor da próxima página; null quando esta é a última", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+        String nextCursor
+) {
+    /**
+     * Monta a página a partir de uma busca feita com limit + 1: o item a mais só indica que existe próxima página.
+     *
+     * @param fetched Itens buscados, ordenados pelo _id.
+     * @param limit Tamanho da página.
+     * @param idOf Extrai o _id de um item, que vira o cursor.
+     * @return página com no máximo limit itens.
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, String> idOf) {
+        if (fetched.size() <= limit) return new CursorPage<>(fetched, null);
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(items, idOf.apply(items.get(limit - 1)));
+    }
+
+    /**
+     * @return cursor convertido para ObjectId.
+     * @throws IllegalArgumentException se o cursor não for um ObjectId válido.
+     */
+    public static ObjectId parseCursor(String cursor) {
+        if (!ObjectId.isValid(cursor)) throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        return new ObjectId(cursor);
+    }
+}
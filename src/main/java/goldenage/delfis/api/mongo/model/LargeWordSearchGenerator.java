@@ -0,0 +1,120 @@
+/*
+ * Classe LargeWordSearchGenerator
+ * Factory da entidade WordSearch para grids grandes (modo mega puzzle)
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+public class LargeWordSearchGenerator {
+    /*
+     * Versão própria do algoritmo do modo grande. Ela é diferente de WordSearch.ALGORITHM_VERSION,
+     * então esses caça-palavras nunca são regenerados pela seed e sempre ficam salvos compactados.
+     * */
+    public static final int ALGORITHM_VERSION = 1001;
+    public static final int MIN_GRID_SIZE = 100;
+    public static final int MAX_GRID_SIZE = 1000;
+
+    private static final int MAX_PLACEMENT_ATTEMPTS = 100;
+    private static final int FILL_BAND_ROWS = 32;
+    private static final long BAND_SEED_STEP = 0x9E3779B97F4A7C15L;
+    private static final byte EMPTY = 0;
+
+    // Deslocamentos (linha, coluna) na mesma ordem de WordSearchDirection.
+    private static final int[] DIRECTION_ROW_STEP = {0, 1, 1, 0, -1, -1};
+    private static final int[] DIRECTION_COLUMN_STEP = {1, 0, 1, -1, 0, -1};
+
+    /**
+     * Gera um caça-palavras grande num grid plano de bytes, sem lista de coordenadas nem grid em string.
+     * A memória usada fica em gridSize² bytes para o grid plano mais gridSize² * 5 / 8 para o compactado.
+     *
+     * @param gridSize Tamanho do grid, entre MIN_GRID_SIZE e MAX_GRID_SIZE.
+     * @param words Palavras só com letras de A a Z.
+     * @param seed Seed da geração; o mesmo grid sai para a mesma seed independentemente das threads.
+     * @return caça-palavras com o grid compactado e só com as palavras que couberam.
+     */
+    public static WordSearch generate(int gridSize, List<String> words, long seed) {
+        byte[] cells = new byte[gridSize * gridSize];
+        SplittableRandom random = new SplittableRandom(seed);
+
+        List<String> placedWords = new ArrayList<>(words.size());
+        for (String word : words) {
+            if (placeWord(cells, gridSize, word, random)) placedWords.add(word);
+        }
+        randomFillGrid(cells, gridSize, seed);
+
+        WordSearch wordSearch = new WordSearch();
+        wordSearch.setGridSize(gridSize);
+        wordSearch.setWords(placedWords);
+        wordSearch.setNormalizedWords(WordSearch.normalizeWords(placedWords));
+        wordSearch.setSeed(seed);
+        wordSearch.setAlgorithmVersion(ALGORITHM_VERSION);
+        wordSearch.setCreatedAt(LocalDateTime.now());
+        wordSearch.setPackedGrid(WordSearchGridCodec.pack(cells, gridSize));
+        return wordSearch;
+    }
+
+    /*
+     * Sorteia direção e posição inicial já dentro dos limites do grid, então só há nova tentativa
+     * quando a palavra cruza uma letra diferente. Depois de MAX_PLACEMENT_ATTEMPTS a palavra é descartada.
+     * Palavras invertidas seguem a mesma regra de limites de WordSearch.isWordCorrect.
+     * */
+    private static boolean placeWord(byte[] cells, int gridSize, String word, SplittableRandom random) {
+        int length = word.length();
+        if (length > gridSize) return false;
+
+        for (int attempt = 0; attempt < MAX_PLACEMENT_ATTEMPTS; attempt++) {
+            int direction = random.nextInt(DIRECTION_ROW_STEP.length);
+            int rowStep = DIRECTION_ROW_STEP[direction];
+            int columnStep = DIRECTION_COLUMN_STEP[direction];
+            int row = randomStart(gridSize, length, rowStep, random);
+            int column = randomStart(gridSize, length, columnStep, random);
+            if (row < 0 || column < 0) return false;
+
+            if (fits(cells, gridSize, word, row, column, rowStep, columnStep)) {
+                for (int i = 0; i < length; i++) {
+                    cells[(row + i * rowStep) * gridSize + column + i * columnStep] = (byte) word.charAt(i);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int randomStart(int gridSize, int length, int step, SplittableRandom random) {
+        if (step == 0) return random.nextInt(gridSize);
+        if (step > 0) return random.nextInt(gridSize - length + 1);
+        return length < gridSize ? random.nextInt(length, gridSize) : -1;
+    }
+
+    private static boolean fits(byte[] cells, int gridSize, String word, int row, int column, int rowStep, int columnStep) {
+        for (int i = 0; i < word.length(); i++) {
+            byte cell = cells[(row + i * rowStep) * gridSize + column + i * columnStep];
+            if (cell != EMPTY && cell != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /*
+     * Preenche as células vazias em paralelo, por faixas de linhas. Cada faixa tem seu próprio gerador,
+     * derivado da seed e do índice da faixa, para o resultado não depender da ordem de execução.
+     * */
+    private static void randomFillGrid(byte[] cells, int gridSize, long seed) {
+        int bands = (gridSize + FILL_BAND_ROWS - 1) / FILL_BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            SplittableRandom random = new SplittableRandom(seed + (band + 1) * BAND_SEED_STEP);
+            int from = band * FILL_BAND_ROWS * gridSize;
+            int to = Math.min(gridSize, (band + 1) * FILL_BAND_ROWS) * gridSize;
+            for (int i = from; i < to; i++) {
+                if (cells[i] == EMPTY) cells[i] = (byte) ('A' + random.nextInt(26));
+            }
+        });
+    }
+}
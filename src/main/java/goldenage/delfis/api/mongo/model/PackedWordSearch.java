@@ -0,0 +1,45 @@
+/*
+ * Record PackedWordSearch
+ * Resposta compacta da entidade WordSearch, com o grid de 5 bits em base64
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Caça-palavras com o grid compactado (5 bits por letra, linha a linha, codificado em base64).")
+public record PackedWordSearch(
+        @Schema(description = "Identificador único do caça-palavras", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+        String id,
+
+        @Schema(description = "Grid compactado em base64. A célula (x, y) ocupa os bits [5 * (x * gridSize + y), +5) e vale letra - 'A'.", example = "CEQ=")
+        byte[] packedGrid,
+
+        @Schema(description = "Tamanho do grid do jogo, que é uma dimensão do grid quadrado.", example = "10")
+        int gridSize,
+
+        @Schema(description = "Lista de palavras a serem encontradas no caça-palavras.", example = "[\"JAVA\", \"SPRING\", \"JPA\"]")
+        List<String> words,
+
+        @Schema(description = "Tema das palavras", example = "animais")
+        String theme
+) {
+    public static final String MEDIA_TYPE = "application/vnd.delfis.word-search.packed+json";
+
+    /**
+     * @return versão compacta do caça-palavras, ou null se o grid tiver caracteres fora de A-Z.
+     */
+    public static PackedWordSearch from(WordSearch wordSearch) {
+        byte[] packedGrid = wordSearch.getPackedGrid();
+        if (packedGrid == null) {
+            char[][] gridArray = WordSearchGridCodec.fromLegacyString(wordSearch.getGrid(), wordSearch.getGridSize());
+            if (!WordSearchGridCodec.canPack(gridArray)) return null;
+            packedGrid = WordSearchGridCodec.pack(gridArray);
+        }
+        return new PackedWordSearch(wordSearch.getId(), packedGrid, wordSearch.getGridSize(), wordSearch.getWords(), wordSearch.getTheme());
+    }
+}
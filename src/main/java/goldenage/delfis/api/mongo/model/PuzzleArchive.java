@@ -0,0 +1,38 @@
+/*
+ * Classe PuzzleArchive
+ * Model dos jogos arquivados, guardados como BSON comprimido com gzip
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Document("puzzleArchive")
+public class PuzzleArchive {
+    /*
+     * Mesmo _id do documento original, então a busca pelo id funciona igual depois de arquivar.
+     * */
+    @Id
+    private String id;
+
+    // Nome da coleção de origem: "sudoku" ou "wordSearch".
+    private String sourceCollection;
+
+    private LocalDateTime archivedAt;
+
+    // Documento original inteiro em BSON, comprimido com gzip.
+    @ToString.Exclude
+    private byte[] data;
+}
@@ -0,0 +1,46 @@
+/*
+ * Classe SessionHistory
+ * Model do histórico de sessões, numa coleção time-series do Mongo alimentada pelo stream de eventos do Redis
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.LocalDateTime;
+
+/*
+ * Um documento por evento de sessão. O metaField é o usuário, então o Mongo agrupa os eventos de cada usuário
+ * nos mesmos buckets e as consultas por usuário e período leem poucos buckets.
+ * */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Document("sessionHistory")
+@TimeSeries(timeField = "timestamp", metaField = "fkAppUserId", granularity = Granularity.MINUTES)
+public class SessionHistory {
+    @Id
+    private String id;
+
+    // Horário do evento: início da sessão para START, fim da sessão para FINISH.
+    private LocalDateTime timestamp;
+
+    private long fkAppUserId;
+
+    private String sessionId;
+
+    // START ou FINISH.
+    private String type;
+
+    // Duração da sessão em segundos; só nos eventos FINISH.
+    private Long durationSeconds;
+}
@@ -7,18 +7,31 @@
 
 package goldenage.delfis.api.mongo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @EqualsAndHashCode
 @Schema(description = "Modelo que representa um tabuleiro de Sudoku")
 @Document
+@CompoundIndex(name = "type_1_filledCellsCount_-1", def = "{'type': 1, 'filledCellsCount': -1}")
+@CompoundIndex(name = "lastAccessedAt_1__id_1", def = "{'lastAccessedAt': 1, '_id': 1}")
 public class Sudoku {
+    @Id
+    @Schema(description = "Identificador único do Sudoku", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+    private String id;
+
     @ArraySchema(schema = @Schema(description = "Tabuleiro do Sudoku com as posições preenchidas e vazias", example = "[[\"5\", \"3\", \"\", ...], [...]]"))
     protected String[][] board;
 
@@ -40,6 +53,25 @@ public class Sudoku {
     @ArraySchema(schema = @Schema(description = "Valores válidos para o Sudoku", example = "[\"1\", \"2\", \"3\", \"4\", \"5\", \"6\", \"7\", \"8\", \"9\"]"))
     private String[] VALIDVALUES;
 
+    @Schema(description = "Tipo do Sudoku", example = "SIXBYSIX")
+    private SudokuType type;
+
+    @Schema(description = "Quantidade de células preenchidas na geração; quanto menor, mais difícil", example = "18")
+    @Indexed(name = "filledCellsCount_-1", direction = IndexDirection.DESCENDING)
+    private Integer filledCellsCount;
+
+    @Indexed(name = "createdAt_1")
+    @Schema(description = "Data de criação", example = "2026-10-19T14:30:00")
+    private LocalDateTime createdAt;
+
+    /*
+     * Última entrega ou leitura pelo id, gravada no máximo uma vez por intervalo (ver PuzzleArchiveService).
+     * O arquivamento usa esse campo; sem ele, vale a idade do _id.
+     * */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private LocalDateTime lastAccessedAt;
+
     public Sudoku(int rows, int columns, int boxWidth, int boxHeight, String[] validValues) {
         this.ROWS = rows;
         this.COLUMNS = columns;
@@ -155,6 +187,16 @@ public class Sudoku {
         return true;
     }
 
+    public int countFilledCells() {
+        int filledCells = 0;
+        for (int r = 0; r < this.ROWS; r++) {
+            for (int c = 0; c < this.COLUMNS; c++) {
+                if (!this.board[r][c].equals("")) filledCells++;
+            }
+        }
+        return filledCells;
+    }
+
     public void makeSlotEmpty(int row, int col) {
         this.board[row][col] = "";
     }
@@ -7,6 +7,7 @@
 
 package goldenage.delfis.api.mongo.model;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -40,6 +41,9 @@ public class SudokuGenerator {
             }
         }
 
+        puzzle.setType(puzzleType);
+        puzzle.setFilledCellsCount(puzzle.countFilledCells());
+        puzzle.setCreatedAt(LocalDateTime.now());
         return puzzle;
     }
 
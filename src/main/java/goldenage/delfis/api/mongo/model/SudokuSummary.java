@@ -0,0 +1,32 @@
+/*
+ * Record SudokuSummary
+ * Resumo da entidade Sudoku para listagens, sem o tabuleiro
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/*
+ * Usado como projeção nos repositories: o Mongo só lê e envia os campos deste record,
+ * então board e mutable nunca saem do banco nas listagens.
+ * */
+@Schema(description = "Resumo de um Sudoku para listagens. O tabuleiro é buscado pelo id quando o jogo é aberto.")
+public record SudokuSummary(
+        @Schema(description = "Identificador único do Sudoku", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+        String id,
+
+        @Schema(description = "Tipo do Sudoku", example = "SIXBYSIX")
+        SudokuType type,
+
+        @Schema(description = "Quantidade de células já preenchidas; quanto menor, mais difícil", example = "18")
+        Integer filledCellsCount,
+
+        @Schema(description = "Data de criação", example = "2026-10-19T14:30:00")
+        LocalDateTime createdAt
+) {
+}
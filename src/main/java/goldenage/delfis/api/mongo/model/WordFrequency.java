@@ -0,0 +1,33 @@
+/*
+ * Classe WordFrequency
+ * Model da contagem de uso de cada palavra nos caça-palavras
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+@Schema(description = "Quantidade de vezes que uma palavra apareceu nos caça-palavras entregues.")
+@Document("wordFrequency")
+public class WordFrequency {
+    @Id
+    @Schema(description = "Palavra", example = "JAVA")
+    private String word;
+
+    @Indexed(name = "count_-1", direction = IndexDirection.DESCENDING)
+    @Schema(description = "Total de ocorrências da palavra", example = "42")
+    private long count;
+}
@@ -7,16 +7,23 @@
 
 package goldenage.delfis.api.mongo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.text.Normalizer;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 @Getter
@@ -26,19 +33,85 @@ import java.util.concurrent.ThreadLocalRandom;
 @EqualsAndHashCode
 @Schema(description = "Representa um jogo de caça-palavras.")
 @Document
+@CompoundIndex(name = "poolStatus_1_gridSize_1_theme_1", def = "{'poolStatus': 1, 'gridSize': 1, 'theme': 1}")
+@CompoundIndex(name = "normalizedWords_1__id_1", def = "{'normalizedWords': 1, '_id': 1}")
+@CompoundIndex(name = "poolStatus_1__id_1", def = "{'poolStatus': 1, '_id': 1}")
+@CompoundIndex(name = "lastAccessedAt_1__id_1", def = "{'lastAccessedAt': 1, '_id': 1}")
 public class WordSearch {
     private static final String ALL_CAP_LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
 
+    /*
+     * Versão do algoritmo de geração. Qualquer mudança que altere o grid gerado a partir da mesma seed
+     * precisa incrementar esse número, senão os caça-palavras salvos só com a seed mudam de conteúdo.
+     * */
+    public static final int ALGORITHM_VERSION = 1;
+
+    /* Limites do gerador comum; a partir de LargeWordSearchGenerator.MIN_GRID_SIZE os grids vão para o modo grande */
+    public static final int MIN_GRID_SIZE = 4;
+    public static final int MAX_GRID_SIZE = LargeWordSearchGenerator.MIN_GRID_SIZE - 1;
+
+    @Id
+    @Schema(description = "Identificador único do caça-palavras", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+    private String id;
+
     @Schema(description = "Grid do jogo representado como uma string onde cada linha é separada por quebras de linha.", example = "A B C D\nE F G H\nI J K L\nM N O P")
     private String grid;
 
-    @Min(value = 4)
+    /*
+     * Grid compactado com 5 bits por letra (ver WordSearchGridCodec). É o formato salvo no Mongo;
+     * a string legada em "grid" é remontada na leitura para os clientes antigos.
+     * */
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] packedGrid;
+
+    @Min(value = MIN_GRID_SIZE)
     @Schema(description = "Tamanho do grid do jogo, que é uma dimensão do grid quadrado.", example = "10")
     private int gridSize;
 
     @Schema(description = "Lista de palavras a serem encontradas no caça-palavras.", example = "[\"JAVA\", \"SPRING\", \"JPA\"]")
     private List<String> words;
 
+    /*
+     * Palavras em maiúsculas, sem acentos e só com A-Z. É o campo indexado usado nas buscas por palavra.
+     * */
+    @JsonIgnore
+    private List<String> normalizedWords;
+
+    @Schema(description = "Tema das palavras, quando o caça-palavras foi gerado a partir do banco de palavras.", example = "animais")
+    private String theme;
+
+    @Schema(description = "Seed usada na geração; com ela, o tamanho e as palavras o grid pode ser regenerado.", example = "-4962768465676381896")
+    private Long seed;
+
+    @Schema(description = "Versão do algoritmo de geração usado com a seed", example = "1")
+    private int algorithmVersion;
+
+    @Schema(description = "Status no pool de pré-geração. READY ainda não foi entregue a nenhum jogador.", example = "SERVED")
+    private WordSearchPoolStatus poolStatus;
+
+    @Indexed(name = "createdAt_1")
+    @Schema(description = "Data e hora de geração do caça-palavras", example = "2024-09-23T08:30:00")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "Data e hora em que o caça-palavras foi entregue a um jogador", example = "2024-09-23T08:31:00")
+    private LocalDateTime servedAt;
+
+    /*
+     * Última entrega ou leitura pelo id, gravada no máximo uma vez por intervalo (ver PuzzleArchiveService).
+     * O arquivamento usa esse campo; sem ele, vale a idade do _id.
+     * */
+    @JsonIgnore
+    private LocalDateTime lastAccessedAt;
+
+    /*
+     * Só existe enquanto o caça-palavras está pronto no pool. O índice TTL remove os que ninguém
+     * pegou até essa data; o claim apaga o campo, e o filtro parcial protege os já entregues.
+     * */
+    @JsonIgnore
+    @Indexed(name = "poolExpiresAt_1", expireAfterSeconds = 0, partialFilter = "{'poolStatus': 'READY'}")
+    private LocalDateTime poolExpiresAt;
+
     private static class Coordinate {
         int x;
         int y;
@@ -50,19 +123,63 @@ public class WordSearch {
     }
 
     public WordSearch(int gridSize, List<String> wordList) {
+        this(gridSize, wordList, ThreadLocalRandom.current().nextLong());
+    }
+
+    public WordSearch(int gridSize, List<String> wordList, long seed) {
         this.gridSize = gridSize;
 
         this.words = wordList;
+        this.normalizedWords = normalizeWords(wordList);
+        this.seed = seed;
+        this.algorithmVersion = ALGORITHM_VERSION;
+        this.createdAt = LocalDateTime.now();
 
-        char[][] grid = generateGrid(gridSize, wordList);
-        String gridToString = "";
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                gridToString += grid[i][j] + " ";
-            }
-            gridToString += "\r\n";
+        char[][] gridArray = regenerateGridArray(gridSize, wordList, seed);
+        this.grid = WordSearchGridCodec.toLegacyString(gridArray);
+        if (WordSearchGridCodec.canPack(gridArray)) this.packedGrid = WordSearchGridCodec.pack(gridArray);
+    }
+
+    /**
+     * Gera de forma determinística o grid em string para a seed informada.
+     * A mesma combinação de tamanho, palavras e seed sempre gera o mesmo grid.
+     *
+     * @param gridSize Tamanho do grid (dimensão do grid quadrado).
+     * @param words Lista de palavras a serem inseridas no grid.
+     * @param seed Seed do gerador de números aleatórios.
+     * @return O grid em string, com as letras separadas por espaço e as linhas por quebra de linha.
+     */
+    public static String regenerateGrid(int gridSize, List<String> words, long seed) {
+        return WordSearchGridCodec.toLegacyString(regenerateGridArray(gridSize, words, seed));
+    }
+
+    /**
+     * Gera de forma determinística o grid em matriz para a seed informada.
+     *
+     * @return Um array bidimensional de caracteres representando o grid do caça-palavras.
+     */
+    public static char[][] regenerateGridArray(int gridSize, List<String> words, long seed) {
+        return generateGrid(gridSize, words, new Random(seed));
+    }
+
+    /**
+     * @return palavra em maiúsculas, sem acentos e só com as letras de A a Z.
+     */
+    public static String normalizeWord(String word) {
+        String stripped = Normalizer.normalize(word.strip(), Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(stripped.length());
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = Character.toUpperCase(stripped.charAt(i));
+            if (c >= 'A' && c <= 'Z') normalized.append(c);
         }
-        this.grid = gridToString;
+        return normalized.toString();
+    }
+
+    /**
+     * @return palavras normalizadas, sem repetições e sem as que ficaram vazias.
+     */
+    public static List<String> normalizeWords(List<String> words) {
+        return words.stream().map(WordSearch::normalizeWord).filter(word -> !word.isEmpty()).distinct().toList();
     }
 
     /**
@@ -70,9 +187,10 @@ public class WordSearch {
      *
      * @param gridSize Tamanho do grid (dimensão do grid quadrado).
      * @param words Lista de palavras a serem inseridas no grid.
+     * @param random Gerador de números aleatórios; com a mesma seed o grid gerado é sempre o mesmo.
      * @return Um array bidimensional de caracteres representando o grid do caça-palavras.
      */
-    private static char[][] generateGrid(int gridSize, List<String> words) {
+    static char[][] generateGrid(int gridSize, List<String> words, Random random) {
         List<Coordinate> coordinates = new ArrayList<>();
         char[][] contents = new char[gridSize][gridSize];
         for (int i = 0; i < gridSize; i++) {
@@ -83,11 +201,11 @@ public class WordSearch {
         }
 
         for (String word : words) {
-            Collections.shuffle(coordinates);
+            Collections.shuffle(coordinates, random);
             for (Coordinate coordinate : coordinates) {
                 int x = coordinate.x;
                 int y = coordinate.y;
-                WordSearchDirection selectedWordSearchDirection = getDirectionForFit(contents, word, coordinate);
+                WordSearchDirection selectedWordSearchDirection = getDirectionForFit(contents, word, coordinate, random);
                 if (selectedWordSearchDirection != null) {
                     switch (selectedWordSearchDirection) {
                         case HORIZONTAL -> {
@@ -125,7 +243,7 @@ public class WordSearch {
                 }
             }
         }
-        randomFillGrid(contents);
+        randomFillGrid(contents, random);
         return contents;
     }
 
@@ -133,13 +251,14 @@ public class WordSearch {
      * Preenche as células restantes do grid com letras aleatórias.
      *
      * @param contents O grid do caça-palavras que será preenchido com letras aleatórias.
+     * @param random Gerador de números aleatórios.
      */
-    private static void randomFillGrid(char[][] contents) {
+    static void randomFillGrid(char[][] contents, Random random) {
         int gridSize = contents[0].length;
         for (int i = 0; i < gridSize; i++) {
             for (int j = 0; j < gridSize; j++) {
                 if (contents[i][j] == '_') {
-                    int randomIndex = ThreadLocalRandom.current().nextInt(0, ALL_CAP_LETTERS.length());
+                    int randomIndex = random.nextInt(ALL_CAP_LETTERS.length());
                     contents[i][j] = ALL_CAP_LETTERS.charAt(randomIndex);
                 }
             }
@@ -152,11 +271,12 @@ public class WordSearch {
      * @param contents O grid do caça-palavras.
      * @param word A palavra a ser inserida.
      * @param coordinate A coordenada inicial onde a palavra será tentada.
+     * @param random Gerador de números aleatórios usado para embaralhar as direções.
      * @return A direção selecionada para a inserção da palavra, ou null se a palavra não se encaixar em nenhuma direção.
      */
-    private static WordSearchDirection getDirectionForFit(char[][] contents, String word, Coordinate coordinate) {
+    private static WordSearchDirection getDirectionForFit(char[][] contents, String word, Coordinate coordinate, Random random) {
         List<WordSearchDirection> wordSearchDirections = Arrays.asList(WordSearchDirection.values());
-        Collections.shuffle(wordSearchDirections);
+        Collections.shuffle(wordSearchDirections, random);
         for (WordSearchDirection wordSearchDirection : wordSearchDirections) {
             if (doesFit(contents, word, coordinate, wordSearchDirection)) {
                 return wordSearchDirection;
@@ -233,10 +353,33 @@ public class WordSearch {
      * @return true se a palavra selecionada está correta em qualquer direção, false caso contrário.
      */
     public boolean isWordCorrect(int startX, int startY, String word) {
-        int wordLength = word.length();
+        return isWordCorrect(convertGridToArray(), startX, startY, word);
+    }
 
+    /**
+     * Verifica várias palavras de uma vez, carregando o grid uma única vez.
+     * Posições fora do grid contam como erro em vez de lançar exceção.
+     *
+     * @param guesses Palavras marcadas pelo jogador.
+     * @return resultado de cada palavra, na mesma ordem recebida.
+     */
+    public List<WordSearchGuessResult> checkGuesses(List<WordSearchGuess> guesses) {
         char[][] gridArray = convertGridToArray();
 
+        List<WordSearchGuessResult> results = new ArrayList<>(guesses.size());
+        for (WordSearchGuess guess : guesses) {
+            boolean insideGrid = guess.startX() >= 0 && guess.startX() < gridSize
+                    && guess.startY() >= 0 && guess.startY() < gridSize;
+            boolean correct = insideGrid && guess.word() != null && !guess.word().isEmpty()
+                    && isWordCorrect(gridArray, guess.startX(), guess.startY(), guess.word());
+            results.add(new WordSearchGuessResult(guess.word(), guess.startX(), guess.startY(), correct));
+        }
+        return results;
+    }
+
+    private boolean isWordCorrect(char[][] gridArray, int startX, int startY, String word) {
+        int wordLength = word.length();
+
         if (checkHorizontal(gridArray, startX, startY, word, wordLength)) return true;
         if (checkVertical(gridArray, startX, startY, word, wordLength)) return true;
         if (checkDiagonal(gridArray, startX, startY, word, wordLength)) return true;
@@ -247,20 +390,13 @@ public class WordSearch {
     }
 
     /**
-     * Converte o grid em string para uma matriz bidimensional de caracteres.
+     * Converte o grid (compactado, se disponível, ou em string) para uma matriz bidimensional de caracteres.
      *
      * @return Matriz bidimensional representando o grid.
      */
     private char[][] convertGridToArray() {
-        String[] rows = this.grid.split("\r\n");
-        char[][] gridArray = new char[gridSize][gridSize];
-        for (int i = 0; i < gridSize; i++) {
-            String[] columns = rows[i].split(" ");
-            for (int j = 0; j < gridSize; j++) {
-                gridArray[i][j] = columns[j].charAt(0);
-            }
-        }
-        return gridArray;
+        if (this.packedGrid != null) return WordSearchGridCodec.unpack(this.packedGrid, gridSize);
+        return WordSearchGridCodec.fromLegacyString(this.grid, gridSize);
     }
 
     // Verifica horizontalmente da esquerda para a direita
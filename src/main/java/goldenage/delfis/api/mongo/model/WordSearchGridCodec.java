@@ -0,0 +1,139 @@
+/*
+ * Classe WordSearchGridCodec
+ * Conversões do grid da entidade WordSearch entre matriz, string legada e formato compactado de 5 bits
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+public class WordSearchGridCodec {
+    private static final int BITS_PER_LETTER = 5;
+
+    /**
+     * @return true se todas as células são letras de A a Z, únicas representáveis em 5 bits.
+     */
+    public static boolean canPack(char[][] grid) {
+        for (char[] row : grid) {
+            for (char c : row) {
+                if (c < 'A' || c > 'Z') return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compacta o grid com 5 bits por letra, linha a linha, do bit mais significativo para o menos.
+     *
+     * @param grid Grid quadrado só com letras de A a Z.
+     * @return bytes com ceil(gridSize² * 5 / 8) posições.
+     */
+    public static byte[] pack(char[][] grid) {
+        int gridSize = grid.length;
+        byte[] packed = new byte[packedLength(gridSize)];
+        int bitPosition = 0;
+        for (char[] row : grid) {
+            for (char c : row) {
+                writeLetter(packed, bitPosition, c - 'A');
+                bitPosition += BITS_PER_LETTER;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * @return grid descompactado.
+     */
+    public static char[][] unpack(byte[] packed, int gridSize) {
+        char[][] grid = new char[gridSize][gridSize];
+        int bitPosition = 0;
+        for (int i = 0; i < gridSize; i++) {
+            for (int j = 0; j < gridSize; j++) {
+                grid[i][j] = (char) ('A' + readLetter(packed, bitPosition));
+                bitPosition += BITS_PER_LETTER;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Compacta um grid plano (linha a linha, uma letra ASCII de A a Z por byte).
+     */
+    public static byte[] pack(byte[] cells, int gridSize) {
+        byte[] packed = new byte[packedLength(gridSize)];
+        int bitPosition = 0;
+        for (byte cell : cells) {
+            writeLetter(packed, bitPosition, cell - 'A');
+            bitPosition += BITS_PER_LETTER;
+        }
+        return packed;
+    }
+
+    /**
+     * Descompacta uma única linha no buffer informado, sem montar o grid inteiro.
+     */
+    public static void unpackRow(byte[] packed, int gridSize, int row, char[] into) {
+        int bitPosition = row * gridSize * BITS_PER_LETTER;
+        for (int j = 0; j < gridSize; j++) {
+            into[j] = (char) ('A' + readLetter(packed, bitPosition));
+            bitPosition += BITS_PER_LETTER;
+        }
+    }
+
+    /**
+     * @return letra da célula (row, column) lida direto dos bytes compactados.
+     */
+    public static char letterAt(byte[] packed, int gridSize, int row, int column) {
+        return (char) ('A' + readLetter(packed, (row * gridSize + column) * BITS_PER_LETTER));
+    }
+
+    public static int packedLength(int gridSize) {
+        return (gridSize * gridSize * BITS_PER_LETTER + 7) / 8;
+    }
+
+    /**
+     * Monta a string legada do grid: letra seguida de espaço e "\r\n" no fim de cada linha.
+     */
+    public static String toLegacyString(char[][] grid) {
+        int gridSize = grid.length;
+        StringBuilder gridToString = new StringBuilder(gridSize * (gridSize * 2 + 2));
+        for (char[] row : grid) {
+            for (char c : row) {
+                gridToString.append(c).append(' ');
+            }
+            gridToString.append("\r\n");
+        }
+        return gridToString.toString();
+    }
+
+    /**
+     * Converte a string legada do grid para uma matriz bidimensional de caracteres.
+     */
+    public static char[][] fromLegacyString(String gridString, int gridSize) {
+        char[][] grid = new char[gridSize][gridSize];
+        int position = 0;
+        for (int i = 0; i < gridSize; i++) {
+            for (int j = 0; j < gridSize; j++) {
+                grid[i][j] = gridString.charAt(position);
+                position += 2;  // letra + espaço
+            }
+            position += 2;  // \r\n
+        }
+        return grid;
+    }
+
+    private static void writeLetter(byte[] packed, int bitPosition, int value) {
+        for (int bit = BITS_PER_LETTER - 1; bit >= 0; bit--, bitPosition++) {
+            if (((value >> bit) & 1) != 0)
+                packed[bitPosition >> 3] |= (byte) (0x80 >>> (bitPosition & 7));
+        }
+    }
+
+    private static int readLetter(byte[] packed, int bitPosition) {
+        int value = 0;
+        for (int bit = 0; bit < BITS_PER_LETTER; bit++, bitPosition++) {
+            value = (value << 1) | ((packed[bitPosition >> 3] >>> (7 - (bitPosition & 7))) & 1);
+        }
+        return value;
+    }
+}
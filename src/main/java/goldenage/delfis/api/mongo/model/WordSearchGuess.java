@@ -0,0 +1,25 @@
+/*
+ * Record WordSearchGuess
+ * Palavra marcada pelo jogador no caça-palavras, enviada na verificação em lote
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+@Schema(description = "Palavra marcada pelo jogador e a posição onde ela começa.")
+public record WordSearchGuess(
+        @NotNull(message = "A palavra não pode ser nula")
+        @Schema(description = "Palavra selecionada pelo jogador", example = "JAVA")
+        String word,
+
+        @Schema(description = "Coordenada X (linha) de início da palavra no grid", example = "0")
+        int startX,
+
+        @Schema(description = "Coordenada Y (coluna) de início da palavra no grid", example = "3")
+        int startY
+) {
+}
@@ -0,0 +1,26 @@
+/*
+ * Record WordSearchGuessResult
+ * Resultado da verificação de uma palavra marcada pelo jogador
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Resultado da verificação de uma palavra marcada pelo jogador.")
+public record WordSearchGuessResult(
+        @Schema(description = "Palavra selecionada pelo jogador", example = "JAVA")
+        String word,
+
+        @Schema(description = "Coordenada X (linha) de início da palavra no grid", example = "0")
+        int startX,
+
+        @Schema(description = "Coordenada Y (coluna) de início da palavra no grid", example = "3")
+        int startY,
+
+        @Schema(description = "true se a palavra está no grid a partir dessa posição, em qualquer direção", example = "true")
+        boolean correct
+) {
+}
@@ -0,0 +1,12 @@
+/*
+ * Enum WordSearchPoolStatus
+ * Enum de status do pool de pré-geração da entidade WordSearch
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+public enum WordSearchPoolStatus {
+    READY, SERVED
+}
@@ -0,0 +1,12 @@
+/*
+ * Enum WordSearchStorageMode
+ * Enum de modos de armazenamento do grid da entidade WordSearch
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+public enum WordSearchStorageMode {
+    FULL, PACKED, SEED
+}
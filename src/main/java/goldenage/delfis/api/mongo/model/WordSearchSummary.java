@@ -0,0 +1,31 @@
+/*
+ * Record WordSearchSummary
+ * Resumo da entidade WordSearch para listagens, sem o grid
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/*
+ * Usado como projeção nos repositories: grid, packedGrid e palavras nunca saem do banco nas listagens.
+ * */
+@Schema(description = "Resumo de um caça-palavras para listagens. O grid é buscado pelo id quando o jogo é aberto.")
+public record WordSearchSummary(
+        @Schema(description = "Identificador único do caça-palavras", example = "66f1c2a9e4b0a1b2c3d4e5f6")
+        String id,
+
+        @Schema(description = "Tema das palavras", example = "animais")
+        String theme,
+
+        @Schema(description = "Tamanho do grid, usado como dificuldade", example = "10")
+        int gridSize,
+
+        @Schema(description = "Data de criação", example = "2026-10-19T14:30:00")
+        LocalDateTime createdAt
+) {
+}
@@ -0,0 +1,20 @@
+/*
+ * Classe PuzzleArchiveRepository
+ * Repository da entidade PuzzleArchive
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.repository;
+
+import goldenage.delfis.api.mongo.model.PuzzleArchive;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface PuzzleArchiveRepository extends MongoRepository<PuzzleArchive, String> {
+    /**
+     * @return jogo arquivado pelo id, se ele veio da coleção informada.
+     */
+    Optional<PuzzleArchive> findByIdAndSourceCollection(String id, String sourceCollection);
+}
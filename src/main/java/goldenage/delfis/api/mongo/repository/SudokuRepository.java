@@ -8,15 +8,43 @@
 package goldenage.delfis.api.mongo.repository;
 
 import goldenage.delfis.api.mongo.model.Sudoku;
-import org.springframework.data.mongodb.repository.Aggregation;
+import goldenage.delfis.api.mongo.model.SudokuSummary;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SudokuRepository extends MongoRepository<Sudoku, String> {
-    @Aggregation(pipeline = {
-            "{ '$project': { 'filledCellsCount': { '$sum': { '$map': { 'input': '$board', 'as': 'row', 'in': { '$size': { '$filter': { 'input': '$$row', 'as': 'cell', 'cond': { '$ne': ['$$cell', ''] } } } } } } } } }",
-            "{ '$sort': { 'filledCellsCount': -1 } }"
-    })
+    /**
+     * Usa o filledCellsCount salvo na geração, ordenado pelo índice, em vez de contar as células de cada tabuleiro.
+     */
+    @Query(value = "{}", sort = "{ 'filledCellsCount': -1 }")
     List<Sudoku> findSudokusWithMostFilledCells();
+
+    /**
+     * @return primeira página de sudokus, ordenados pelo _id.
+     */
+    List<Sudoku> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * @return próxima página de sudokus, a partir do _id informado (exclusivo).
+     */
+    List<Sudoku> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    /**
+     * @return todos os sudokus, lidos do cursor do Mongo sob demanda.
+     */
+    Stream<Sudoku> streamAllByOrderByIdAsc();
+
+    /**
+     * @return primeira página de resumos, lendo só os campos de SudokuSummary.
+     */
+    List<SudokuSummary> findSummariesByOrderByIdAsc(Limit limit);
+
+    /**
+     * @return próxima página de resumos, a partir do _id informado (exclusivo).
+     */
+    List<SudokuSummary> findSummariesByIdGreaterThanOrderByIdAsc(String id, Limit limit);
 }
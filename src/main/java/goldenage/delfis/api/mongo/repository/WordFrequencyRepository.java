@@ -0,0 +1,21 @@
+/*
+ * Classe WordFrequencyRepository
+ * Repository da entidade WordFrequency
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.repository;
+
+import goldenage.delfis.api.mongo.model.WordFrequency;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface WordFrequencyRepository extends MongoRepository<WordFrequency, String> {
+    /**
+     * @return as palavras mais usadas, da maior para a menor contagem.
+     */
+    List<WordFrequency> findAllByOrderByCountDesc(Limit limit);
+}
@@ -8,19 +8,26 @@
 package goldenage.delfis.api.mongo.repository;
 
 import goldenage.delfis.api.mongo.model.WordSearch;
-import org.springframework.data.mongodb.repository.Aggregation;
+import goldenage.delfis.api.mongo.model.WordSearchPoolStatus;
+import goldenage.delfis.api.mongo.model.WordSearchSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.List;
+
 public interface WordSearchRepository extends MongoRepository<WordSearch, String> {
     /**
-     * Conta as ocorrências de uma palavra específica em todas as grades de WordSearch.
-     * @param word A palavra a ser contada.
-     * @return O total de ocorrências da palavra.
+     * Conta os caça-palavras de um pool (tamanho de grid e tema) em um determinado status.
+     */
+    long countByGridSizeAndThemeAndPoolStatus(int gridSize, String theme, WordSearchPoolStatus poolStatus);
+
+    /**
+     * @return primeira página de resumos dos caça-palavras fora do status informado, lendo só os campos de WordSearchSummary.
+     */
+    List<WordSearchSummary> findSummariesByPoolStatusNotOrderByIdAsc(WordSearchPoolStatus poolStatus, Limit limit);
+
+    /**
+     * @return próxima página de resumos, a partir do _id informado (exclusivo).
      */
-    @Aggregation(pipeline = {
-            "{ '$unwind': '$words' }",
-            "{ '$match': { 'words': ?0 } }",
-            "{ '$count': 'totalOccurrences' }"
-    })
-    Integer countOccurrencesOfWord(String word);
-}
\ No newline at end of file
+    List<WordSearchSummary> findSummariesByIdGreaterThanAndPoolStatusNotOrderByIdAsc(String id, WordSearchPoolStatus poolStatus, Limit limit);
+}
@@ -0,0 +1,316 @@
+/*
+ * Classe MongoBulkInsertPipeline
+ * Fila de inserções no Mongo, gravadas em lotes de bulk inserts não ordenados
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import goldenage.delfis.api.mongo.model.BulkInsertResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+@Service
+public class MongoBulkInsertPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(MongoBulkInsertPipeline.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoDatabaseFactory mongoDatabaseFactory;
+    private final ApplicationContext applicationContext;
+
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<PendingInsert> queue;
+    private final Map<WriteConcern, MongoTemplate> templatesByWriteConcern = new ConcurrentHashMap<>();
+
+    private final Counter insertedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MongoBulkInsertPipeline(MongoTemplate mongoTemplate,
+                                   MongoDatabaseFactory mongoDatabaseFactory,
+                                   ApplicationContext applicationContext,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${delfis.mongo.bulk.batch-size:500}") int batchSize,
+                                   @Value("${delfis.mongo.bulk.flush-interval-ms:50}") long flushIntervalMillis,
+                                   @Value("${delfis.mongo.bulk.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${delfis.mongo.bulk.offer-timeout-ms:5000}") long offerTimeoutMillis) {
+        if (batchSize <= 0 || flushIntervalMillis <= 0 || queueCapacity < batchSize)
+            throw new IllegalArgumentException("Configuração do bulk insert inválida: batch-size=" + batchSize
+                    + ", flush-interval-ms=" + flushIntervalMillis + ", queue-capacity=" + queueCapacity);
+
+        this.mongoTemplate = mongoTemplate;
+        this.mongoDatabaseFactory = mongoDatabaseFactory;
+        this.applicationContext = applicationContext;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("delfis.mongo.bulk.queue.size", queue, Collection::size)
+                .description("Documentos aguardando o próximo bulk insert")
+                .register(meterRegistry);
+        this.insertedCounter = Counter.builder("delfis.mongo.bulk.documents")
+                .description("Documentos gravados pelo bulk insert")
+                .tag("result", "inserted")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("delfis.mongo.bulk.documents")
+                .description("Documentos gravados pelo bulk insert")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "mongo-bulk-insert");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /*
+     * Para de aceitar documentos e espera o flusher gravar o que ainda está na fila.
+     * */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Coloca o documento na fila do próximo bulk insert. O id é atribuído aqui, antes da gravação,
+     * para que cada falha do lote possa ser associada ao seu documento.
+     *
+     * @param document Entidade mapeada com @Document.
+     * @param writeConcern Write concern da gravação; documentos com write concerns diferentes vão em lotes separados.
+     * @return future com o id do documento, completado quando o lote for gravado ou com erro se o documento falhar.
+     * @throws RejectedExecutionException se a fila continuar cheia depois do tempo de espera.
+     */
+    public CompletableFuture<String> submit(Object document, WriteConcern writeConcern) {
+        if (!running) throw new RejectedExecutionException("Fila de escrita do Mongo encerrada.");
+
+        PendingInsert pendingInsert = new PendingInsert(document, assignId(document), writeConcern, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pendingInsert, offerTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new RejectedExecutionException("Fila de escrita do Mongo cheia. Tente novamente mais tarde.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrompido esperando espaço na fila de escrita do Mongo.", e);
+        }
+        return pendingInsert.result();
+    }
+
+    /**
+     * Envia todos os documentos do stream para a fila, respeitando a backpressure, e espera todos serem gravados.
+     * Se a fila recusar um documento, para de enviar: os já enfileirados são gravados normalmente e o recusado,
+     * junto com os que ainda não saíram do stream, volta como falha sem id.
+     *
+     * @return quantidade de inseridos e falhas por documento.
+     */
+    public BulkInsertResult insertAll(Stream<?> documents, WriteConcern writeConcern) {
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        Spliterator<?> remaining = documents.spliterator();
+        RejectedExecutionException rejected = null;
+        try {
+            while (remaining.tryAdvance(document -> results.add(submit(document, writeConcern)))) {
+            }
+        } catch (RejectedExecutionException e) {
+            rejected = e;
+        }
+
+        int inserted = 0;
+        List<BulkInsertResult.Failure> failures = new ArrayList<>();
+        for (CompletableFuture<String> result : results) {
+            try {
+                result.join();
+                inserted++;
+            } catch (CompletionException e) {
+                String id = e.getCause() instanceof FailedInsertException failure ? failure.getId() : null;
+                failures.add(new BulkInsertResult.Failure(id, e.getCause().getMessage()));
+            }
+        }
+
+        int notQueued = rejected != null ? 1 + countRemaining(remaining) : 0;
+        for (int i = 0; i < notQueued; i++) failures.add(new BulkInsertResult.Failure(null, rejected.getMessage()));
+        return new BulkInsertResult(results.size() + notQueued, inserted, failures, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @param name Nome de um write concern do driver (W1, MAJORITY, UNACKNOWLEDGED, JOURNALED...), ou null para o padrão.
+     * @return write concern correspondente, ou null para usar o padrão do MongoTemplate.
+     */
+    public static WriteConcern parseWriteConcern(String name) {
+        if (name == null || name.isBlank()) return null;
+        WriteConcern writeConcern = WriteConcern.valueOf(name.strip().toUpperCase(Locale.ROOT));
+        if (writeConcern == null) throw new IllegalArgumentException("Write concern desconhecido: " + name);
+        return writeConcern;
+    }
+
+    /*
+     * Documentos que ainda não saíram do stream. Com tamanho conhecido (um IntStream.range mapeado, por exemplo) nada
+     * mais é gerado; sem ele, o restante precisa ser consumido para ser contado.
+     * */
+    private static int countRemaining(Spliterator<?> remaining) {
+        long size = remaining.getExactSizeIfKnown();
+        if (size < 0) {
+            size = 0;
+            while (remaining.tryAdvance(document -> {
+            })) size++;
+        }
+        return Math.toIntExact(size);
+    }
+
+    /*
+     * Grava um lote quando ele completa batchSize documentos ou quando o primeiro documento do lote
+     * já esperou flushInterval, o que vier primeiro.
+     * */
+    private void runFlusher() {
+        List<PendingInsert> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Erro inesperado no bulk insert do Mongo.", e);
+                batch.forEach(pendingInsert -> pendingInsert.fail(e.getMessage()));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingInsert> batch) {
+        Map<BatchKey, List<PendingInsert>> groups = new LinkedHashMap<>();
+        for (PendingInsert pendingInsert : batch) {
+            BatchKey key = new BatchKey(pendingInsert.document().getClass(), pendingInsert.writeConcern());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(pendingInsert);
+        }
+        groups.forEach(this::insertGroup);
+    }
+
+    /*
+     * Com o bulk não ordenado, um documento com erro não impede os outros. O BulkOperationException traz
+     * o índice de cada documento que falhou dentro do lote; todos os outros foram gravados.
+     * Com write concern UNACKNOWLEDGED o Mongo não reporta erros, então todos contam como gravados.
+     * */
+    private void insertGroup(BatchKey key, List<PendingInsert> group) {
+        BulkOperations bulkOperations = templateFor(key.writeConcern()).bulkOps(BulkOperations.BulkMode.UNORDERED, key.entityClass());
+        bulkOperations.insert(group.stream().map(PendingInsert::document).toList());
+
+        Map<Integer, String> errorsByIndex = new HashMap<>();
+        try {
+            bulkOperations.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) errorsByIndex.put(error.getIndex(), error.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Falha no bulk insert de {} documentos de {}: {}", group.size(), key.entityClass().getSimpleName(), e.getMessage());
+            for (int i = 0; i < group.size(); i++) errorsByIndex.put(i, e.getMessage());
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            String error = errorsByIndex.get(i);
+            if (error == null) group.get(i).result().complete(group.get(i).id());
+            else group.get(i).fail(error);
+        }
+        insertedCounter.increment(group.size() - errorsByIndex.size());
+        failedCounter.increment(errorsByIndex.size());
+    }
+
+    /*
+     * O MongoTemplate usa um único write concern, então cada write concern tem a sua cópia do template.
+     * O setApplicationContext registra os entity callbacks, para que o modo de armazenamento
+     * do grid (WordSearchStorageCallbacks) continue valendo nos bulk inserts.
+     * */
+    private MongoTemplate templateFor(WriteConcern writeConcern) {
+        if (writeConcern == null) return mongoTemplate;
+        return templatesByWriteConcern.computeIfAbsent(writeConcern, wc -> {
+            MongoTemplate template = new MongoTemplate(mongoDatabaseFactory, mongoTemplate.getConverter());
+            template.setWriteConcern(wc);
+            template.setApplicationContext(applicationContext);
+            return template;
+        });
+    }
+
+    private String assignId(Object document) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(document.getClass());
+        MongoPersistentProperty idProperty = entity.getRequiredIdProperty();
+        PersistentPropertyAccessor<Object> accessor = entity.getPropertyAccessor(document);
+
+        Object id = accessor.getProperty(idProperty);
+        if (id == null) {
+            ObjectId objectId = new ObjectId();
+            id = idProperty.getType() == ObjectId.class ? objectId : objectId.toHexString();
+            accessor.setProperty(idProperty, id);
+        }
+        return id.toString();
+    }
+
+    private record BatchKey(Class<?> entityClass, WriteConcern writeConcern) {
+    }
+
+    private record PendingInsert(Object document, String id, WriteConcern writeConcern, CompletableFuture<String> result) {
+        void fail(String message) {
+            result.completeExceptionally(new FailedInsertException(id, message));
+        }
+    }
+
+    /**
+     * Falha na gravação de um documento específico do lote.
+     */
+    public static class FailedInsertException extends DataIntegrityViolationException {
+        private final String id;
+
+        FailedInsertException(String id, String message) {
+            super(message);
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Classe PuzzleArchiveService
+ * Arquivamento dos jogos antigos em uma coleção comprimida e leitura deles pelo id
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import com.mongodb.MongoClientSettings;
+import goldenage.delfis.api.mongo.config.WordSearchStorageCallbacks;
+import goldenage.delfis.api.mongo.model.PuzzleArchive;
+import goldenage.delfis.api.mongo.model.Sudoku;
+import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchPoolStatus;
+import goldenage.delfis.api.mongo.repository.PuzzleArchiveRepository;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.ne;
+
+@Service
+public class PuzzleArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(PuzzleArchiveService.class);
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+    private static final Document ARCHIVE_SORT = new Document("lastAccessedAt", 1).append("_id", 1);
+
+    private final PuzzleArchiveRepository puzzleArchiveRepository;
+    private final MongoTemplate mongoTemplate;
+    private final PuzzleCache puzzleCache;
+    private final WordSearchStorageCallbacks wordSearchStorageCallbacks;
+
+    private final boolean enabled;
+    private final Duration archiveAfter;
+    private final Duration accessResolution;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public PuzzleArchiveService(PuzzleArchiveRepository puzzleArchiveRepository,
+                                MongoTemplate mongoTemplate,
+                                PuzzleCache puzzleCache,
+                                WordSearchStorageCallbacks wordSearchStorageCallbacks,
+                                @Value("${delfis.retention.archive.enabled:true}") boolean enabled,
+                                @Value("${delfis.retention.archive.after:90d}") Duration archiveAfter,
+                                @Value("${delfis.retention.archive.access-resolution:1d}") Duration accessResolution,
+                                @Value("${delfis.retention.archive.batch-size:500}") int batchSize,
+                                @Value("${delfis.retention.archive.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.puzzleArchiveRepository = puzzleArchiveRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.puzzleCache = puzzleCache;
+        this.wordSearchStorageCallbacks = wordSearchStorageCallbacks;
+        this.enabled = enabled;
+        this.archiveAfter = archiveAfter;
+        this.accessResolution = accessResolution;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /*
+     * Arquiva o que ninguém abriu desde o corte: primeiro pelo lastAccessedAt e depois, para os documentos que ainda
+     * não têm o campo, pela idade do próprio _id. As duas passadas usam o índice lastAccessedAt_1__id_1.
+     * Caça-palavras ainda prontos no pool ficam de fora: eles saem pelo TTL.
+     * */
+    @Scheduled(initialDelayString = "${delfis.retention.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${delfis.retention.archive.interval-ms:3600000}")
+    public void archiveStale() {
+        if (!enabled) return;
+
+        Date cutoff = Date.from(Instant.now().minus(archiveAfter));
+        int sudokus = archiveStale(mongoTemplate.getCollectionName(Sudoku.class), cutoff);
+        int wordSearches = archiveStale(mongoTemplate.getCollectionName(WordSearch.class), cutoff,
+                ne("poolStatus", WordSearchPoolStatus.READY.name()));
+
+        if (sudokus + wordSearches > 0)
+            logger.info("Arquivados {} sudokus e {} caça-palavras sem acesso há mais de {}.", sudokus, wordSearches, archiveAfter);
+    }
+
+    /**
+     * Registra que o sudoku foi entregue ou lido, no máximo uma gravação por intervalo para cada documento.
+     */
+    public void recordAccess(Sudoku sudoku) {
+        recordAccess(Sudoku.class, sudoku.getId(), sudoku.getLastAccessedAt(), sudoku::setLastAccessedAt);
+    }
+
+    /**
+     * Registra que o caça-palavras foi entregue ou lido, no máximo uma gravação por intervalo para cada documento.
+     */
+    public void recordAccess(WordSearch wordSearch) {
+        recordAccess(WordSearch.class, wordSearch.getId(), wordSearch.getLastAccessedAt(), wordSearch::setLastAccessedAt);
+    }
+
+    /**
+     * @return sudoku arquivado pelo id, ou null se ele não estiver no arquivo.
+     */
+    public Sudoku findSudoku(String id) {
+        Document document = findDocument(id, mongoTemplate.getCollectionName(Sudoku.class));
+        return document == null ? null : mongoTemplate.getConverter().read(Sudoku.class, document);
+    }
+
+    /**
+     * @return caça-palavras arquivado pelo id, ou null se ele não estiver no arquivo.
+     */
+    public WordSearch findWordSearch(String id) {
+        String collection = mongoTemplate.getCollectionName(WordSearch.class);
+        Document document = findDocument(id, collection);
+        if (document == null) return null;
+
+        // O converter sozinho não chama os entity callbacks, e é o callback que remonta o grid.
+        WordSearch wordSearch = mongoTemplate.getConverter().read(WordSearch.class, document);
+        return wordSearchStorageCallbacks.onAfterConvert(wordSearch, document, collection);
+    }
+
+    private int archiveStale(String collection, Date cutoff, Bson... filters) {
+        List<Bson> accessedBeforeCutoff = new ArrayList<>(List.of(filters));
+        accessedBeforeCutoff.add(lt("lastAccessedAt", cutoff));
+        List<Bson> createdBeforeCutoff = new ArrayList<>(List.of(filters));
+        createdBeforeCutoff.add(eq("lastAccessedAt", null));
+        createdBeforeCutoff.add(lt("_id", new ObjectId(cutoff)));
+
+        return archive(collection, and(accessedBeforeCutoff)) + archive(collection, and(createdBeforeCutoff));
+    }
+
+    /*
+     * O objeto recebido costuma ser o do cache: ele guarda a nova data, então as próximas leituras dentro do
+     * intervalo não chegam ao Mongo. Documentos já arquivados não casam com o update e só ficam marcados em memória.
+     * */
+    private void recordAccess(Class<?> type, String id, LocalDateTime lastAccessedAt, Consumer<LocalDateTime> setLastAccessedAt) {
+        if (id == null) return;
+        LocalDateTime now = LocalDateTime.now();
+        if (lastAccessedAt != null && lastAccessedAt.isAfter(now.minus(accessResolution))) return;
+
+        setLastAccessedAt.accept(now);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)), Update.update("lastAccessedAt", now), type);
+    }
+
+    /*
+     * Cada lote é gravado no arquivo com replace + upsert antes de ser apagado da coleção de origem.
+     * Se a execução cair entre as duas etapas, a próxima regrava os mesmos ids sem duplicar nada.
+     * Os documentos são lidos como RawBsonDocument, então os bytes comprimidos são o BSON original, sem reconversão.
+     * */
+    private int archive(String collection, Bson filter) {
+        int archived = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<RawBsonDocument> documents = mongoTemplate.getCollection(collection)
+                    .find(filter, RawBsonDocument.class)
+                    .sort(ARCHIVE_SORT)
+                    .limit(batchSize)
+                    .into(new ArrayList<>(batchSize));
+            if (documents.isEmpty()) break;
+
+            LocalDateTime archivedAt = LocalDateTime.now();
+            List<ObjectId> ids = new ArrayList<>(documents.size());
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PuzzleArchive.class);
+            for (RawBsonDocument document : documents) {
+                ObjectId id = document.getObjectId("_id").getValue();
+                ids.add(id);
+                bulkOperations.replaceOne(Query.query(Criteria.where("_id").is(id)),
+                        new PuzzleArchive(id.toHexString(), collection, archivedAt, gzip(document)),
+                        FindAndReplaceOptions.options().upsert());
+            }
+            bulkOperations.execute();
+
+            mongoTemplate.getCollection(collection).deleteMany(in("_id", ids));
+            for (ObjectId id : ids) evict(collection, id.toHexString());
+
+            archived += documents.size();
+            if (documents.size() < batchSize) break;
+        }
+        return archived;
+    }
+
+    private Document findDocument(String id, String sourceCollection) {
+        return puzzleArchiveRepository.findByIdAndSourceCollection(id, sourceCollection)
+                .map(archive -> new RawBsonDocument(gunzip(archive.getData())).decode(DOCUMENT_CODEC))
+                .orElse(null);
+    }
+
+    private void evict(String collection, String id) {
+        if (collection.equals(mongoTemplate.getCollectionName(Sudoku.class))) puzzleCache.evictSudoku(id);
+        else puzzleCache.evictWordSearch(id);
+    }
+
+    private static byte[] gzip(RawBsonDocument document) {
+        ByteBuf buffer = document.getByteBuffer();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.remaining() / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Classe PuzzleCache
+ * Cache em memória dos sudokus e caça-palavras buscados pelo id
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import goldenage.delfis.api.mongo.model.Sudoku;
+import goldenage.delfis.api.mongo.model.WordSearch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Os jogos não mudam depois de gerados, então o cache só precisa ser invalidado quando um jogo sai da coleção.
+ * O Caffeine usa W-TinyLFU: jogos abertos uma única vez não expulsam os que estão sendo jogados.
+ * O limite é em bytes estimados, porque um caça-palavras 100x100 pesa centenas de vezes mais que um 8x8.
+ * */
+@Service
+public class PuzzleCache {
+    private static final int OBJECT_OVERHEAD = 64;
+    private static final int STRING_OVERHEAD = 48;
+
+    private final Cache<String, Sudoku> sudokus;
+    private final Cache<String, WordSearch> wordSearches;
+
+    public PuzzleCache(MeterRegistry meterRegistry,
+                       @Value("${delfis.puzzle-cache.sudoku.max-size:16MB}") DataSize sudokuMaxSize,
+                       @Value("${delfis.puzzle-cache.word-search.max-size:64MB}") DataSize wordSearchMaxSize) {
+        this.sudokus = Caffeine.newBuilder()
+                .maximumWeight(sudokuMaxSize.toBytes())
+                .weigher((String id, Sudoku sudoku) -> estimateBytes(sudoku))
+                .recordStats()
+                .build();
+        this.wordSearches = Caffeine.newBuilder()
+                .maximumWeight(wordSearchMaxSize.toBytes())
+                .weigher((String id, WordSearch wordSearch) -> estimateBytes(wordSearch))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sudokus, "delfis.puzzle.sudoku", Tags.empty());
+        CaffeineCacheMetrics.monitor(meterRegistry, wordSearches, "delfis.puzzle.word-search", Tags.empty());
+    }
+
+    /**
+     * @return sudoku do cache, ou carregado pelo loader e guardado. Null se o loader não encontrar.
+     */
+    public Sudoku getSudoku(String id, Function<String, Sudoku> loader) {
+        return sudokus.get(id, loader);
+    }
+
+    /**
+     * @return caça-palavras do cache, ou carregado pelo loader e guardado. Null se o loader não encontrar.
+     */
+    public WordSearch getWordSearch(String id, Function<String, WordSearch> loader) {
+        return wordSearches.get(id, loader);
+    }
+
+    public void evictSudoku(String id) {
+        sudokus.invalidate(id);
+    }
+
+    public void evictWordSearch(String id) {
+        wordSearches.invalidate(id);
+    }
+
+    private static int estimateBytes(Sudoku sudoku) {
+        long bytes = OBJECT_OVERHEAD;
+        if (sudoku.getBoard() != null) {
+            for (String[] row : sudoku.getBoard()) bytes += OBJECT_OVERHEAD + row.length * (long) STRING_OVERHEAD;
+        }
+        if (sudoku.getMutable() != null) {
+            for (boolean[] row : sudoku.getMutable()) bytes += OBJECT_OVERHEAD + row.length;
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int estimateBytes(WordSearch wordSearch) {
+        long bytes = OBJECT_OVERHEAD;
+        if (wordSearch.getGrid() != null) bytes += STRING_OVERHEAD + wordSearch.getGrid().length();
+        if (wordSearch.getPackedGrid() != null) bytes += OBJECT_OVERHEAD + wordSearch.getPackedGrid().length;
+        bytes += estimateBytes(wordSearch.getWords()) + estimateBytes(wordSearch.getNormalizedWords());
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long estimateBytes(List<String> words) {
+        if (words == null) return 0;
+        long bytes = OBJECT_OVERHEAD;
+        for (String word : words) bytes += STRING_OVERHEAD + word.length();
+        return bytes;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Classe SessionHistoryService
+ * Consome o stream de eventos de sessão do Redis, grava o histórico na coleção time-series do Mongo e responde
+ * as consultas de tempo de sessão por período a partir dele
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import goldenage.delfis.api.mongo.model.SessionHistory;
+import goldenage.delfis.api.redis.model.SessionTimePoint;
+import goldenage.delfis.api.redis.service.SessionService;
+import goldenage.delfis.api.redis.service.SessionStreamService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+@Service
+public class SessionHistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(SessionHistoryService.class);
+    private static final int MAX_HISTORY_DAYS = 3660;
+
+    private final MongoTemplate mongoTemplate;
+    private final SessionStreamService sessionStreamService;
+    private final SessionService sessionService;
+
+    private final boolean enabled;
+    private final String consumer;
+    private final int batchSize;
+    private final Duration evictAfter;
+
+    public SessionHistoryService(MongoTemplate mongoTemplate,
+                                 SessionStreamService sessionStreamService,
+                                 SessionService sessionService,
+                                 @Value("${delfis.session.history.enabled:true}") boolean enabled,
+                                 @Value("${delfis.session.history.consumer:delfis-api}") String consumer,
+                                 @Value("${delfis.session.history.batch-size:500}") int batchSize,
+                                 @Value("${delfis.session.history.evict-after:1d}") Duration evictAfter) {
+        this.mongoTemplate = mongoTemplate;
+        this.sessionStreamService = sessionStreamService;
+        this.sessionService = sessionService;
+        this.enabled = enabled;
+        this.consumer = consumer;
+        this.batchSize = batchSize;
+        this.evictAfter = evictAfter;
+    }
+
+    /*
+     * A coleção precisa ser criada explicitamente como time-series: um insert numa coleção inexistente
+     * criaria uma coleção comum.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) return;
+
+        try {
+            if (!mongoTemplate.collectionExists(SessionHistory.class)) {
+                mongoTemplate.createCollection(SessionHistory.class);
+                logger.info("Coleção time-series {} criada.", mongoTemplate.getCollectionName(SessionHistory.class));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Erro ao criar a coleção do histórico de sessões: {}", e.getMessage());
+        }
+    }
+
+    /*
+     * Lê os eventos em lotes, grava cada lote com um insert só e confirma (XACK) depois da gravação. Se o insert
+     * falhar, os eventos continuam pendentes para este consumidor e são lidos de novo na próxima execução.
+     * A entrega é at-least-once: se a aplicação cair entre o insert e o XACK, o lote é gravado duas vezes.
+     * Coleções time-series não têm índice único, então as consultas é que ignoram eventos repetidos da mesma sessão.
+     * Só os FINISH que o insert devolveu agendam a remoção da sessão do Redis para depois de evict-after: um evento
+     * inválido é confirmado e descartado, mas a sessão dele fica no Redis, sem perder dados.
+     * Depois dos lotes, o stream é limpo só até as entradas já confirmadas (ver SessionStreamService.trimAcknowledged).
+     * O nome do consumidor deve ser fixo por instância: pendentes de um nome que deixou de existir não são relidos,
+     * e seguram a limpeza do stream.
+     * */
+    @Scheduled(initialDelayString = "${delfis.session.history.poll-interval-ms:5000}",
+            fixedDelayString = "${delfis.session.history.poll-interval-ms:5000}")
+    public void drain() {
+        if (!enabled) return;
+
+        int stored = 0;
+        try {
+            List<MapRecord<String, Object, Object>> records;
+            do {
+                records = sessionStreamService.read(consumer, batchSize);
+                if (records.isEmpty()) break;
+
+                List<SessionHistory> history = new ArrayList<>(records.size());
+                List<RecordId> ids = new ArrayList<>(records.size());
+                for (MapRecord<String, Object, Object> record : records) {
+                    ids.add(record.getId());
+                    SessionHistory entry = toHistory(record.getValue());
+                    if (entry == null) {
+                        logger.warn("Evento de sessão inválido ignorado: {} {}", record.getId(), record.getValue());
+                        continue;
+                    }
+                    history.add(entry);
+                }
+
+                Collection<SessionHistory> inserted = history.isEmpty() ? List.of() : mongoTemplate.insert(history, SessionHistory.class);
+                List<String> finished = inserted.stream()
+                        .filter(entry -> SessionStreamService.FINISH.equals(entry.getType()))
+                        .map(SessionHistory::getSessionId)
+                        .toList();
+                sessionService.scheduleEviction(finished, Instant.now().plus(evictAfter));
+                sessionStreamService.acknowledge(ids);
+                stored += inserted.size();
+            } while (records.size() == batchSize);
+
+            long trimmed = sessionStreamService.trimAcknowledged();
+            int evicted = sessionService.evictHistoricSessions(batchSize);
+            if (stored + trimmed + evicted > 0)
+                logger.info("{} eventos de sessão gravados no histórico, {} apagados do stream e {} sessões removidas do Redis.",
+                        stored, trimmed, evicted);
+        } catch (RuntimeException e) {
+            logger.error("Erro ao gravar o histórico de sessões: {}", e.getMessage());
+        }
+    }
+
+    /*
+     * Tempo de sessão do usuário por dia, semana (começando na segunda) ou mês, calculado pela coleção time-series.
+     * Cada sessão conta inteira no período em que terminou, diferente da série do Redis, que divide a sessão
+     * na meia-noite. O primeiro $group deixa um documento por sessão, descartando eventos gravados em dobro.
+     * Períodos sem sessão vêm com zero.
+     * */
+    public List<SessionTimePoint> getTimeSeries(long fkAppUserId, LocalDate from, LocalDate to, String unit) {
+        from = switch (unit) {
+            case "day" -> from;
+            case "week" -> from.with(DayOfWeek.MONDAY);
+            case "month" -> from.withDayOfMonth(1);
+            default -> throw new IllegalArgumentException("Granularidade inválida: " + unit + ". Use day, week ou month.");
+        };
+        if (from.isAfter(to)) throw new IllegalArgumentException("A data inicial deve ser anterior à final.");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_HISTORY_DAYS)
+            throw new IllegalArgumentException("O período deve ter no máximo " + MAX_HISTORY_DAYS + " dias.");
+
+        ZoneId zone = ZoneId.systemDefault();
+        Document period = new Document("date", "$timestamp").append("unit", unit).append("timezone", zone.getId());
+        if (unit.equals("week")) period.append("startOfWeek", "monday");
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("fkAppUserId", fkAppUserId)
+                        .append("type", SessionStreamService.FINISH)
+                        .append("timestamp", new Document("$gte", toDate(from.atStartOfDay(), zone))
+                                .append("$lt", toDate(to.plusDays(1).atStartOfDay(), zone)))),
+                new Document("$group", new Document("_id", "$sessionId")
+                        .append("timestamp", new Document("$first", "$timestamp"))
+                        .append("durationSeconds", new Document("$first", "$durationSeconds"))),
+                new Document("$group", new Document("_id", new Document("$dateTrunc", period))
+                        .append("seconds", new Document("$sum", "$durationSeconds")))
+        );
+
+        Map<LocalDate, Long> secondsByPeriod = new LinkedHashMap<>();
+        for (LocalDate start = from; !start.isAfter(to); start = next(start, unit)) secondsByPeriod.put(start, 0L);
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(SessionHistory.class))
+                .aggregate(pipeline)
+                .forEach(document -> secondsByPeriod.merge(
+                        LocalDate.ofInstant(document.getDate("_id").toInstant(), zone),
+                        ((Number) document.get("seconds")).longValue(), Long::sum));
+
+        return secondsByPeriod.entrySet().stream()
+                .map(entry -> new SessionTimePoint(entry.getKey(), entry.getValue() / 60.0))
+                .toList();
+    }
+
+    /**
+     * @return documento do histórico para o evento, ou null se faltar algum campo
+     */
+    private static SessionHistory toHistory(Map<Object, Object> event) {
+        try {
+            String type = (String) event.get("type");
+            LocalDateTime initial = SessionStreamService.fromEpochSecond((String) event.get("initial"));
+            SessionHistory history = new SessionHistory(null, initial,
+                    Long.parseLong((String) event.get("fkAppUserId")), (String) event.get("sessionId"), type, null);
+            if (history.getSessionId() == null) return null;
+
+            if (SessionStreamService.FINISH.equals(type)) {
+                LocalDateTime finalDatetime = SessionStreamService.fromEpochSecond((String) event.get("final"));
+                history.setTimestamp(finalDatetime);
+                history.setDurationSeconds(Math.max(0, Duration.between(initial, finalDatetime).toSeconds()));
+            } else if (!SessionStreamService.START.equals(type)) {
+                return null;
+            }
+            return history;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate next(LocalDate start, String unit) {
+        return switch (unit) {
+            case "week" -> start.plusWeeks(1);
+            case "month" -> start.with(TemporalAdjusters.firstDayOfNextMonth());
+            default -> start.plusDays(1);
+        };
+    }
+
+    private static Date toDate(LocalDateTime dateTime, ZoneId zone) {
+        return Date.from(dateTime.atZone(zone).toInstant());
+    }
+}
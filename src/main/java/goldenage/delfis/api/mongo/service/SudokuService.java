@@ -7,20 +7,60 @@
 
 package goldenage.delfis.api.mongo.service;
 
+import com.mongodb.WriteConcern;
+import goldenage.delfis.api.mongo.model.BulkInsertResult;
+import goldenage.delfis.api.mongo.model.CursorPage;
 import goldenage.delfis.api.mongo.model.Sudoku;
 import goldenage.delfis.api.mongo.model.SudokuGenerator;
+import goldenage.delfis.api.mongo.model.SudokuSummary;
 import goldenage.delfis.api.mongo.model.SudokuType;
 import goldenage.delfis.api.mongo.repository.SudokuRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 public class SudokuService {
+    private static final Logger logger = LoggerFactory.getLogger(SudokuService.class);
+
+    /*
+     * Conta as células preenchidas do tabuleiro no próprio Mongo, para os sudokus salvos antes do campo existir.
+     * */
+    private static final String FILLED_CELLS_COUNT_BACKFILL =
+            "{ '$set': { 'filledCellsCount': { '$sum': { '$map': { 'input': '$board', 'as': 'row', 'in': { '$size': { '$filter': { 'input': '$$row', 'as': 'cell', 'cond': { '$ne': ['$$cell', ''] } } } } } } } } }";
+
     private final SudokuRepository sudokuRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MongoBulkInsertPipeline mongoBulkInsertPipeline;
+    private final PuzzleCache puzzleCache;
+    private final PuzzleArchiveService puzzleArchiveService;
 
-    public SudokuService(SudokuRepository sudokuRepository) {
+    public SudokuService(SudokuRepository sudokuRepository, MongoTemplate mongoTemplate,
+                         MongoBulkInsertPipeline mongoBulkInsertPipeline, PuzzleCache puzzleCache,
+                         PuzzleArchiveService puzzleArchiveService) {
         this.sudokuRepository = sudokuRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.mongoBulkInsertPipeline = mongoBulkInsertPipeline;
+        this.puzzleCache = puzzleCache;
+        this.puzzleArchiveService = puzzleArchiveService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        long updated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Sudoku.class)).updateMany(
+                new Document("filledCellsCount", new Document("$exists", false)).append("board", new Document("$exists", true)),
+                List.of(Document.parse(FILLED_CELLS_COUNT_BACKFILL))).getModifiedCount();
+        if (updated > 0) logger.info("filledCellsCount preenchido em {} sudokus.", updated);
     }
 
     /**
@@ -31,6 +71,46 @@ public class SudokuService {
         return sudokus.isEmpty() ? null : sudokus;
     }
 
+    /**
+     * @param after Cursor retornado pela página anterior, ou null para a primeira página.
+     * @param limit Tamanho máximo da página.
+     * @return página de sudokus ordenados pelo _id.
+     */
+    public CursorPage<Sudoku> getSudokusPage(String after, int limit) {
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<Sudoku> sudokus = after == null
+                ? sudokuRepository.findAllByOrderByIdAsc(fetchLimit)
+                : sudokuRepository.findByIdGreaterThanOrderByIdAsc(CursorPage.parseCursor(after).toHexString(), fetchLimit);
+        return CursorPage.of(sudokus, limit, Sudoku::getId);
+    }
+
+    /**
+     * @return página de resumos de sudokus ordenados pelo _id, sem os tabuleiros.
+     */
+    public CursorPage<SudokuSummary> getSudokuSummariesPage(String after, int limit) {
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<SudokuSummary> summaries = after == null
+                ? sudokuRepository.findSummariesByOrderByIdAsc(fetchLimit)
+                : sudokuRepository.findSummariesByIdGreaterThanOrderByIdAsc(CursorPage.parseCursor(after).toHexString(), fetchLimit);
+        return CursorPage.of(summaries, limit, SudokuSummary::id);
+    }
+
+    /**
+     * @return sudoku pelo id, do cache quando possível. Se ele já foi arquivado, vem do arquivo.
+     */
+    public Sudoku getSudokuById(String id) {
+        Sudoku sudoku = puzzleCache.getSudoku(id, key -> sudokuRepository.findById(key).orElseGet(() -> puzzleArchiveService.findSudoku(key)));
+        if (sudoku != null) puzzleArchiveService.recordAccess(sudoku);
+        return sudoku;
+    }
+
+    /**
+     * @return todos os sudokus, lidos do cursor do Mongo sob demanda. Quem consome deve fechar o stream.
+     */
+    public Stream<Sudoku> streamSudokus() {
+        return sudokuRepository.streamAllByOrderByIdAsc();
+    }
+
     /**
      * @return sudoku inserido.
      */
@@ -43,9 +123,20 @@ public class SudokuService {
      */
     public Sudoku generateSudoku() {
         Sudoku generatedSudoku = SudokuGenerator.generateRandomSudoku(SudokuType.SIXBYSIX);
+        generatedSudoku.setLastAccessedAt(LocalDateTime.now());
         return saveSudoku(generatedSudoku);
     }
 
+    /**
+     * Gera e grava sudokus em lote pela fila de bulk inserts.
+     *
+     * @return quantidade de inseridos e falhas por documento.
+     */
+    public BulkInsertResult seedSudokus(int count, SudokuType type, WriteConcern writeConcern) {
+        Stream<Sudoku> sudokus = IntStream.range(0, count).mapToObj(i -> SudokuGenerator.generateRandomSudoku(type));
+        return mongoBulkInsertPipeline.insertAll(sudokus, writeConcern);
+    }
+
     public List<Sudoku> findSudokusWithMostFilledCells() {
         List<Sudoku> sudokus = sudokuRepository.findSudokusWithMostFilledCells();
         return sudokus.isEmpty() ? null : sudokus;
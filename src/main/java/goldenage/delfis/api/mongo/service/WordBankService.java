@@ -0,0 +1,185 @@
+/*
+ * Classe WordBankService
+ * Banco de palavras por tema usado na geração de caça-palavras
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import goldenage.delfis.api.mongo.model.WordSearch;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+@Service
+public class WordBankService {
+    private static final Logger logger = LoggerFactory.getLogger(WordBankService.class);
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+
+    /*
+     * Snapshot imutável do banco. O reload monta um snapshot novo e só troca a referência no final,
+     * então as requests em andamento continuam lendo o antigo sem esperar nenhum lock.
+     * */
+    private volatile Map<String, ThemeBucket> themes = Map.of();
+
+    public WordBankService(ResourceLoader resourceLoader,
+                           @Value("${delfis.word-bank.location:classpath:word-bank.txt}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Relê o arquivo do banco de palavras e troca o snapshot em memória.
+     *
+     * @return quantidade de palavras carregadas.
+     */
+    public int reload() {
+        Map<String, Set<String>> wordsByTheme = new HashMap<>();
+        Resource resource = resourceLoader.getResource(location);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                int separator = line.indexOf(':');
+                if (separator <= 0) continue;
+
+                String theme = normalizeTheme(line.substring(0, separator));
+                Set<String> words = wordsByTheme.computeIfAbsent(theme, t -> new HashSet<>());
+                for (String rawWord : line.substring(separator + 1).split(",")) {
+                    String word = normalizeWord(rawWord);
+                    if (word.length() >= MIN_WORD_LENGTH) words.add(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao carregar o banco de palavras de " + location, e);
+        }
+
+        Map<String, ThemeBucket> newThemes = new HashMap<>();
+        int total = 0;
+        for (Map.Entry<String, Set<String>> entry : wordsByTheme.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            newThemes.put(entry.getKey(), new ThemeBucket(entry.getValue()));
+            total += entry.getValue().size();
+        }
+        this.themes = Map.copyOf(newThemes);
+
+        logger.info("Banco de palavras carregado: {} palavras em {} temas.", total, newThemes.size());
+        return total;
+    }
+
+    /**
+     * @return temas disponíveis no banco.
+     */
+    public List<String> getThemes() {
+        List<String> themeNames = new ArrayList<>(themes.keySet());
+        Collections.sort(themeNames);
+        return themeNames;
+    }
+
+    /**
+     * @return true se o tema existe no banco.
+     */
+    public boolean hasTheme(String theme) {
+        return theme != null && themes.containsKey(normalizeTheme(theme));
+    }
+
+    /**
+     * @return quantidade de palavras do tema que cabem num grid do tamanho informado, ou null se o tema não existir.
+     */
+    public Integer countWords(String theme, int gridSize) {
+        ThemeBucket bucket = theme == null ? null : themes.get(normalizeTheme(theme));
+        return bucket == null ? null : bucket.countFitting(gridSize);
+    }
+
+    /**
+     * Sorteia palavras distintas do tema que cabem num grid do tamanho informado.
+     *
+     * @param theme Tema das palavras.
+     * @param gridSize Tamanho do grid, que limita o tamanho máximo da palavra.
+     * @param count Quantidade desejada de palavras.
+     * @param random Gerador de números aleatórios usado no sorteio.
+     * @return lista de palavras sorteadas, ou null se o tema não existir.
+     */
+    public List<String> sampleWords(String theme, int gridSize, int count, RandomGenerator random) {
+        ThemeBucket bucket = theme == null ? null : themes.get(normalizeTheme(theme));
+        if (bucket == null) return null;
+        return bucket.sample(gridSize, count, random);
+    }
+
+    /**
+     * @return quantidade padrão de palavras para um grid do tamanho informado.
+     */
+    public static int defaultWordCount(int gridSize) {
+        return Math.max(3, gridSize / 2 + 2);
+    }
+
+    public static String normalizeWord(String word) {
+        return WordSearch.normalizeWord(word);
+    }
+
+    public static String normalizeTheme(String theme) {
+        return theme.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /*
+     * Palavras de um tema ordenadas por tamanho. countUpToLength[n] guarda quantas palavras têm até n letras,
+     * então as palavras que cabem num grid n são sempre o prefixo words[0..countUpToLength[n]).
+     * */
+    private static final class ThemeBucket {
+        private final String[] words;
+        private final int[] countUpToLength;
+
+        ThemeBucket(Collection<String> source) {
+            this.words = source.toArray(new String[0]);
+            Arrays.sort(words, Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+
+            int maxLength = words[words.length - 1].length();
+            this.countUpToLength = new int[maxLength + 1];
+            for (String word : words) countUpToLength[word.length()]++;
+            for (int length = 1; length <= maxLength; length++) countUpToLength[length] += countUpToLength[length - 1];
+        }
+
+        int countFitting(int gridSize) {
+            return countUpToLength[Math.min(gridSize, countUpToLength.length - 1)];
+        }
+
+        List<String> sample(int gridSize, int count, RandomGenerator random) {
+            int eligible = countFitting(gridSize);
+            int k = Math.min(count, eligible);
+
+            // Algoritmo de Floyd: k índices distintos em [0, eligible) com exatamente k sorteios, sem rejeição.
+            LinkedHashSet<Integer> chosen = new LinkedHashSet<>(k * 2);
+            for (int j = eligible - k; j < eligible; j++) {
+                int index = random.nextInt(j + 1);
+                if (!chosen.add(index)) chosen.add(j);
+            }
+
+            List<String> sampled = new ArrayList<>(k);
+            for (int index : chosen) sampled.add(words[index]);
+            return sampled;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Classe WordFrequencyService
+ * Service da entidade WordFrequency
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import goldenage.delfis.api.mongo.model.WordFrequency;
+import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchPoolStatus;
+import goldenage.delfis.api.mongo.repository.WordFrequencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class WordFrequencyService {
+    private static final Logger logger = LoggerFactory.getLogger(WordFrequencyService.class);
+
+    private final WordFrequencyRepository wordFrequencyRepository;
+    private final MongoTemplate mongoTemplate;
+
+    public WordFrequencyService(WordFrequencyRepository wordFrequencyRepository, MongoTemplate mongoTemplate) {
+        this.wordFrequencyRepository = wordFrequencyRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /*
+     * Se a contagem ainda não existe, monta ela a partir dos caça-palavras já entregues.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (wordFrequencyRepository.count() == 0) rebuild();
+    }
+
+    /**
+     * Soma uma ocorrência para cada palavra do caça-palavras, com upserts $inc numa única escrita em lote.
+     */
+    public void recordWords(List<String> words) {
+        if (words == null || words.isEmpty()) return;
+
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (String word : words) occurrences.merge(word, 1, Integer::sum);
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WordFrequency.class);
+        occurrences.forEach((word, count) ->
+                bulkOperations.upsert(Query.query(Criteria.where("_id").is(word)), new Update().inc("count", count)));
+        bulkOperations.execute();
+    }
+
+    /**
+     * @return número de ocorrências da palavra.
+     */
+    public long getOccurrences(String word) {
+        return wordFrequencyRepository.findById(word).map(WordFrequency::getCount).orElse(0L);
+    }
+
+    /**
+     * @return as k palavras mais usadas.
+     */
+    public List<WordFrequency> getTopWords(int k) {
+        List<WordFrequency> wordFrequencies = wordFrequencyRepository.findAllByOrderByCountDesc(Limit.of(k));
+        return wordFrequencies.isEmpty() ? null : wordFrequencies;
+    }
+
+    /*
+     * Recalcula a contagem inteira com $unwind/$group direto no banco. Só roda quando a coleção de contagem está vazia.
+     * */
+    private void rebuild() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("poolStatus").ne(WordSearchPoolStatus.READY)),
+                Aggregation.unwind("words"),
+                Aggregation.group("words").count().as("count"),
+                Aggregation.merge()
+                        .intoCollection(mongoTemplate.getCollectionName(WordFrequency.class))
+                        .whenMatched(MergeOperation.WhenDocumentsMatch.replaceDocument())
+                        .build()
+        );
+        mongoTemplate.aggregate(aggregation, WordSearch.class, WordFrequency.class);
+        logger.info("Contagem de palavras reconstruída: {} palavras.", wordFrequencyRepository.count());
+    }
+}
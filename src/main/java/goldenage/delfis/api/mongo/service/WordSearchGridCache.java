@@ -0,0 +1,55 @@
+/*
+ * Classe WordSearchGridCache
+ * Cache LRU dos grids regenerados a partir da seed
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import goldenage.delfis.api.mongo.model.WordSearch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class WordSearchGridCache {
+    private final Map<GridKey, String> grids;
+
+    public WordSearchGridCache(@Value("${delfis.word-search.grid-cache.max-entries:1000}") int maxEntries) {
+        this.grids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GridKey, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Retorna o grid do cache ou regenera a partir da seed.
+     *
+     * @return grid em string, ou null se o caça-palavras foi gerado por outra versão do algoritmo.
+     */
+    public String getGrid(int gridSize, List<String> words, long seed, int algorithmVersion) {
+        if (algorithmVersion != WordSearch.ALGORITHM_VERSION) return null;
+
+        GridKey key = new GridKey(gridSize, List.copyOf(words), seed);
+        synchronized (grids) {
+            String grid = grids.get(key);
+            if (grid != null) return grid;
+        }
+
+        // A regeneração fica fora do lock; no pior caso duas threads geram o mesmo grid.
+        String grid = WordSearch.regenerateGrid(gridSize, words, seed);
+        synchronized (grids) {
+            grids.put(key, grid);
+        }
+        return grid;
+    }
+
+    private record GridKey(int gridSize, List<String> words, long seed) {
+    }
+}
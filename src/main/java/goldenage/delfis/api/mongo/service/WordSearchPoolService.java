@@ -0,0 +1,226 @@
+/*
+ * Classe WordSearchPoolService
+ * Pool de caça-palavras pré-gerados por tamanho de grid e tema
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchPoolStatus;
+import goldenage.delfis.api.mongo.repository.WordSearchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class WordSearchPoolService {
+    private static final Logger logger = LoggerFactory.getLogger(WordSearchPoolService.class);
+    private static final int REFILL_BATCH_SIZE = 50;
+
+    private final WordSearchRepository wordSearchRepository;
+    private final WordBankService wordBankService;
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final TaskExecutor taskExecutor;
+
+    private final boolean enabled;
+    private final Set<Integer> gridSizes;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final Duration poolTtl;
+
+    private final Map<PoolKey, AtomicLong> depths = new ConcurrentHashMap<>();
+    private final Set<PoolKey> refilling = ConcurrentHashMap.newKeySet();
+    private final Timer claimHitTimer;
+    private final Timer claimMissTimer;
+    private final Counter refilledCounter;
+
+    public WordSearchPoolService(WordSearchRepository wordSearchRepository,
+                                 WordBankService wordBankService,
+                                 MongoTemplate mongoTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                 @Value("${delfis.word-search.pool.enabled:true}") boolean enabled,
+                                 @Value("${delfis.word-search.pool.grid-sizes:8,10,12}") Set<Integer> gridSizes,
+                                 @Value("${delfis.word-search.pool.low-watermark:5}") int lowWatermark,
+                                 @Value("${delfis.word-search.pool.high-watermark:20}") int highWatermark,
+                                 @Value("${delfis.retention.pool-ttl:7d}") Duration poolTtl) {
+        if (lowWatermark < 0 || highWatermark <= lowWatermark)
+            throw new IllegalArgumentException("Watermarks do pool inválidas: low=" + lowWatermark + ", high=" + highWatermark);
+
+        this.wordSearchRepository = wordSearchRepository;
+        this.wordBankService = wordBankService;
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.gridSizes = Set.copyOf(gridSizes);
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.poolTtl = poolTtl;
+
+        this.claimHitTimer = Timer.builder("delfis.wordsearch.pool.claim")
+                .description("Latência para obter um caça-palavras do pool")
+                .tag("result", "hit")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.claimMissTimer = Timer.builder("delfis.wordsearch.pool.claim")
+                .description("Latência para obter um caça-palavras do pool")
+                .tag("result", "miss")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.refilledCounter = Counter.builder("delfis.wordsearch.pool.refilled")
+                .description("Caça-palavras gerados em background para o pool")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true se o tamanho de grid é mantido pelo pool.
+     */
+    public boolean isPooled(int gridSize) {
+        return enabled && gridSizes.contains(gridSize);
+    }
+
+    /**
+     * Marca atomicamente um caça-palavras pronto do pool como entregue e dispara a reposição.
+     *
+     * @return caça-palavras retirado do pool, ou null se não havia nenhum pronto.
+     */
+    public WordSearch claim(int gridSize, String theme) {
+        if (!isPooled(gridSize)) return null;
+        PoolKey key = new PoolKey(gridSize, theme);
+
+        long start = System.nanoTime();
+        Query query = new Query(Criteria.where("poolStatus").is(WordSearchPoolStatus.READY)
+                .and("gridSize").is(gridSize)
+                .and("theme").is(theme));
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("poolStatus", WordSearchPoolStatus.SERVED)
+                .set("servedAt", now)
+                .set("lastAccessedAt", now)
+                .unset("poolExpiresAt");
+        WordSearch claimed = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), WordSearch.class);
+        (claimed != null ? claimHitTimer : claimMissTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        AtomicLong depth = depthOf(key);
+        if (claimed != null && depth.get() > 0) depth.decrementAndGet();
+        if (claimed == null || depth.get() < lowWatermark) triggerRefill(key);
+        return claimed;
+    }
+
+    /**
+     * Gera um caça-palavras do tema sem salvar.
+     *
+     * @return caça-palavras gerado, ou null se o tema não existir.
+     */
+    public WordSearch generate(int gridSize, String theme) {
+        List<String> wordList = wordBankService.sampleWords(theme, gridSize, WordBankService.defaultWordCount(gridSize), ThreadLocalRandom.current());
+        if (wordList == null) return null;
+
+        WordSearch wordSearch = new WordSearch(gridSize, wordList);
+        wordSearch.setTheme(theme);
+        return wordSearch;
+    }
+
+    /*
+     * Confere periodicamente todos os pools e repõe os que estão abaixo da low watermark.
+     * */
+    @Scheduled(initialDelayString = "${delfis.word-search.pool.initial-delay-ms:10000}",
+            fixedDelayString = "${delfis.word-search.pool.refill-interval-ms:60000}")
+    public void refillAll() {
+        if (!enabled) return;
+        for (int gridSize : gridSizes) {
+            for (String theme : wordBankService.getThemes()) {
+                PoolKey key = new PoolKey(gridSize, theme);
+                long depth = countReady(key);
+                depthOf(key).set(depth);
+                if (depth < lowWatermark) triggerRefill(key);
+            }
+        }
+    }
+
+    private void triggerRefill(PoolKey key) {
+        if (!refilling.add(key)) return;  // já existe uma reposição em andamento para essa chave
+        taskExecutor.execute(() -> {
+            try {
+                refill(key);
+            } catch (RuntimeException e) {
+                logger.warn("Falha ao repor o pool {}: {}", key, e.getMessage());
+            } finally {
+                refilling.remove(key);
+            }
+        });
+    }
+
+    private void refill(PoolKey key) {
+        long missing = highWatermark - countReady(key);
+        while (missing > 0) {
+            int batchSize = (int) Math.min(missing, REFILL_BATCH_SIZE);
+            List<WordSearch> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                WordSearch wordSearch = generate(key.gridSize(), key.theme());
+                if (wordSearch == null) return;
+                markReady(wordSearch);
+                batch.add(wordSearch);
+            }
+            wordSearchRepository.insert(batch);
+            refilledCounter.increment(batchSize);
+            missing -= batchSize;
+        }
+        depthOf(key).set(countReady(key));
+    }
+
+    /**
+     * Marca o caça-palavras como pronto no pool, com a data em que o índice TTL remove ele se ninguém pegar.
+     */
+    public void markReady(WordSearch wordSearch) {
+        wordSearch.setPoolStatus(WordSearchPoolStatus.READY);
+        wordSearch.setPoolExpiresAt(LocalDateTime.now().plus(poolTtl));
+    }
+
+    private long countReady(PoolKey key) {
+        return wordSearchRepository.countByGridSizeAndThemeAndPoolStatus(key.gridSize(), key.theme(), WordSearchPoolStatus.READY);
+    }
+
+    private AtomicLong depthOf(PoolKey key) {
+        return depths.computeIfAbsent(key, k -> {
+            AtomicLong depth = new AtomicLong();
+            Gauge.builder("delfis.wordsearch.pool.depth", depth, AtomicLong::get)
+                    .description("Caça-palavras prontos no pool")
+                    .tag("gridSize", String.valueOf(k.gridSize()))
+                    .tag("theme", k.theme())
+                    .register(meterRegistry);
+            return depth;
+        });
+    }
+
+    private record PoolKey(int gridSize, String theme) {
+    }
+}
@@ -7,28 +7,116 @@
 
 package goldenage.delfis.api.mongo.service;
 
+import com.mongodb.WriteConcern;
+import goldenage.delfis.api.mongo.model.BulkInsertResult;
+import goldenage.delfis.api.mongo.model.CursorPage;
+import goldenage.delfis.api.mongo.model.LargeWordSearchGenerator;
+import goldenage.delfis.api.mongo.model.WordFrequency;
 import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchGuess;
+import goldenage.delfis.api.mongo.model.WordSearchGuessResult;
+import goldenage.delfis.api.mongo.model.WordSearchPoolStatus;
+import goldenage.delfis.api.mongo.model.WordSearchSummary;
 import goldenage.delfis.api.mongo.repository.WordSearchRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 public class WordSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(WordSearchService.class);
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
     private final WordSearchRepository wordSearchRepository;
+    private final WordBankService wordBankService;
+    private final WordSearchPoolService wordSearchPoolService;
+    private final WordFrequencyService wordFrequencyService;
+    private final MongoTemplate mongoTemplate;
+    private final MongoBulkInsertPipeline mongoBulkInsertPipeline;
+    private final PuzzleCache puzzleCache;
+    private final PuzzleArchiveService puzzleArchiveService;
 
-    public WordSearchService(WordSearchRepository wordSearchRepository) {
+    public WordSearchService(WordSearchRepository wordSearchRepository, WordBankService wordBankService,
+                             WordSearchPoolService wordSearchPoolService, WordFrequencyService wordFrequencyService,
+                             MongoTemplate mongoTemplate, MongoBulkInsertPipeline mongoBulkInsertPipeline,
+                             PuzzleCache puzzleCache, PuzzleArchiveService puzzleArchiveService) {
         this.wordSearchRepository = wordSearchRepository;
+        this.wordBankService = wordBankService;
+        this.wordSearchPoolService = wordSearchPoolService;
+        this.wordFrequencyService = wordFrequencyService;
+        this.mongoTemplate = mongoTemplate;
+        this.mongoBulkInsertPipeline = mongoBulkInsertPipeline;
+        this.puzzleCache = puzzleCache;
+        this.puzzleArchiveService = puzzleArchiveService;
+    }
+
+    /*
+     * Preenche normalizedWords nos caça-palavras antigos. O índice da busca vem das anotações de WordSearch.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        backfillNormalizedWords();
     }
 
     /**
-     * @return todos os caça-palavras do banco.
+     * @return todos os caça-palavras entregues, sem os do modo grande.
      */
     public List<WordSearch> getWordSearches() {
-        List<WordSearch> wordSearchs = wordSearchRepository.findAll();
+        List<WordSearch> wordSearchs = mongoTemplate.find(new Query(listedCriteria()), WordSearch.class);
         return wordSearchs.isEmpty() ? null : wordSearchs;
     }
 
+    /**
+     * @param after Cursor retornado pela página anterior, ou null para a primeira página.
+     * @param limit Tamanho máximo da página.
+     * @return página de caça-palavras entregues ordenados pelo _id, sem os do modo grande.
+     */
+    public CursorPage<WordSearch> getWordSearchesPage(String after, int limit) {
+        Criteria criteria = listedCriteria();
+        if (after != null) criteria = criteria.and("_id").gt(CursorPage.parseCursor(after));
+
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit + 1);
+        return CursorPage.of(mongoTemplate.find(query, WordSearch.class), limit, WordSearch::getId);
+    }
+
+    /**
+     * @return página de resumos de caça-palavras entregues ordenados pelo _id, sem os grids.
+     */
+    public CursorPage<WordSearchSummary> getWordSearchSummariesPage(String after, int limit) {
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<WordSearchSummary> summaries = after == null
+                ? wordSearchRepository.findSummariesByPoolStatusNotOrderByIdAsc(WordSearchPoolStatus.READY, fetchLimit)
+                : wordSearchRepository.findSummariesByIdGreaterThanAndPoolStatusNotOrderByIdAsc(
+                        CursorPage.parseCursor(after).toHexString(), WordSearchPoolStatus.READY, fetchLimit);
+        return CursorPage.of(summaries, limit, WordSearchSummary::id);
+    }
+
+    /**
+     * @return todos os caça-palavras entregues, sem os do modo grande, lidos do cursor do Mongo sob demanda.
+     * Quem consome deve fechar o stream.
+     */
+    public Stream<WordSearch> streamWordSearches() {
+        return mongoTemplate.stream(new Query(listedCriteria()).with(Sort.by(Sort.Direction.ASC, "_id")), WordSearch.class);
+    }
+
     /**
      * @return caça-palavras inserido.
      */
@@ -41,14 +129,214 @@ public class WordSearchService {
      */
     public WordSearch generateWordSearch(int gridSize, List<String> wordList) {
         WordSearch generatedWordSearch = new WordSearch(gridSize, wordList);
-        return saveWordSearch(generatedWordSearch);
+        markServed(generatedWordSearch);
+        return saveServedWordSearch(generatedWordSearch);
+    }
+
+    /**
+     * Entrega um caça-palavras do tema, retirando do pool pré-gerado quando possível.
+     * Só gera na hora se o pool estiver vazio ou se o tamanho de grid não for mantido pelo pool.
+     *
+     * @return caça-palavras entregue, ou null se o tema não existir.
+     */
+    public WordSearch generateWordSearch(int gridSize, String theme) {
+        String normalizedTheme = WordBankService.normalizeTheme(theme);
+        if (!wordBankService.hasTheme(normalizedTheme)) return null;
+
+        WordSearch claimedWordSearch = wordSearchPoolService.claim(gridSize, normalizedTheme);
+        if (claimedWordSearch != null) {
+            wordFrequencyService.recordWords(claimedWordSearch.getWords());
+            return claimedWordSearch;
+        }
+
+        WordSearch generatedWordSearch = wordSearchPoolService.generate(gridSize, normalizedTheme);
+        markServed(generatedWordSearch);
+        return saveServedWordSearch(generatedWordSearch);
+    }
+
+    /*
+     * A contagem de palavras só considera caça-palavras entregues; os que estão parados no pool não contam.
+     * */
+    private WordSearch saveServedWordSearch(WordSearch wordSearch) {
+        WordSearch savedWordSearch = saveWordSearch(wordSearch);
+        wordFrequencyService.recordWords(savedWordSearch.getWords());
+        return savedWordSearch;
+    }
+
+    /**
+     * Gera um caça-palavras do modo grande, com grid plano e preenchimento paralelo.
+     *
+     * @param wordCount Quantidade de palavras, ou null para usar todas as palavras do tema que cabem no grid.
+     * @return caça-palavras inserido, ou null se o tema não existir.
+     * @throws IllegalArgumentException se o tema não tiver wordCount palavras que caibam no grid.
+     */
+    public WordSearch generateLargeWordSearch(int gridSize, String theme, Integer wordCount) {
+        String normalizedTheme = WordBankService.normalizeTheme(theme);
+        Integer available = wordBankService.countWords(normalizedTheme, gridSize);
+        if (available == null) return null;
+        if (wordCount == null) wordCount = available;
+        if (wordCount > available)
+            throw new IllegalArgumentException("O tema " + normalizedTheme + " tem só " + available + " palavras que cabem no grid; peça no máximo " + available + ".");
+
+        long seed = ThreadLocalRandom.current().nextLong();
+        List<String> wordList = wordBankService.sampleWords(normalizedTheme, gridSize, wordCount, new SplittableRandom(seed));
+        if (wordList == null) return null;
+
+        WordSearch generatedWordSearch = LargeWordSearchGenerator.generate(gridSize, wordList, seed);
+        generatedWordSearch.setTheme(normalizedTheme);
+        markServed(generatedWordSearch);
+        return saveServedWordSearch(generatedWordSearch);
+    }
+
+    /**
+     * Gera caça-palavras do tema e grava em lote pela fila de bulk inserts. Eles entram como prontos no pool,
+     * então os tamanhos de grid mantidos pelo pool passam a ser servidos por eles.
+     *
+     * @return quantidade de inseridos e falhas por documento, ou null se o tema não existir.
+     */
+    public BulkInsertResult seedWordSearches(int count, int gridSize, String theme, WriteConcern writeConcern) {
+        String normalizedTheme = WordBankService.normalizeTheme(theme);
+        if (!wordBankService.hasTheme(normalizedTheme)) return null;
+
+        Stream<WordSearch> wordSearches = IntStream.range(0, count).mapToObj(i -> {
+            WordSearch wordSearch = wordSearchPoolService.generate(gridSize, normalizedTheme);
+            wordSearchPoolService.markReady(wordSearch);
+            return wordSearch;
+        });
+        return mongoBulkInsertPipeline.insertAll(wordSearches, writeConcern);
+    }
+
+    /**
+     * Os prontos no pool ficam de fora, como nas listagens: ainda não foram entregues a ninguém.
+     *
+     * @return caça-palavras pelo id, do cache quando possível. Se ele já foi arquivado, vem do arquivo.
+     */
+    public WordSearch getWordSearchById(String id) {
+        WordSearch found = puzzleCache.getWordSearch(id, key -> {
+            WordSearch wordSearch = wordSearchRepository.findById(key).orElse(null);
+            if (wordSearch == null) return puzzleArchiveService.findWordSearch(key);
+            return wordSearch.getPoolStatus() != WordSearchPoolStatus.READY ? wordSearch : null;
+        });
+        if (found != null) puzzleArchiveService.recordAccess(found);
+        return found;
+    }
+
+    /**
+     * Verifica as palavras marcadas pelo jogador com uma única leitura do caça-palavras.
+     *
+     * @return resultado de cada palavra, ou null se o caça-palavras não existir.
+     */
+    public List<WordSearchGuessResult> checkGuesses(String id, List<WordSearchGuess> guesses) {
+        WordSearch wordSearch = getWordSearchById(id);
+        if (wordSearch == null) return null;
+        return wordSearch.checkGuesses(guesses);
+    }
+
+    /**
+     * Busca os ids dos caça-palavras que contêm as palavras, paginando pelo _id.
+     *
+     * @param words Palavras buscadas; são normalizadas antes da busca.
+     * @param matchAll true para exigir todas as palavras (AND), false para qualquer uma (OR).
+     * @param after Cursor retornado pela página anterior, ou null para a primeira página.
+     * @param limit Tamanho máximo da página.
+     * @return página de ids.
+     */
+    public CursorPage<String> findWordSearchIdsByWords(List<String> words, boolean matchAll, String after, int limit) {
+        Criteria criteria = wordsCriteria(words, matchAll);
+        if (after != null) criteria = criteria.and("_id").gt(CursorPage.parseCursor(after));
+
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(limit + 1);
+        query.fields().include("_id");
+
+        List<String> ids = new ArrayList<>(limit);
+        for (Document document : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(WordSearch.class)))
+            ids.add(document.getObjectId("_id").toHexString());
+
+        return CursorPage.of(ids, limit, id -> id);
+    }
+
+    /**
+     * @return quantidade de caça-palavras que contêm as palavras.
+     */
+    public long countWordSearchesByWords(List<String> words, boolean matchAll) {
+        return mongoTemplate.count(new Query(wordsCriteria(words, matchAll)), WordSearch.class);
+    }
+
+    /*
+     * Filtro das listagens com o grid em JSON. Caça-palavras do modo grande não têm a string legada
+     * (o grid só existe compactado) e são lidos só por /get-large, então ficam de fora.
+     * Os prontos no pool também: ainda não foram entregues, e quem os visse na listagem poderia recebê-los
+     * depois como um jogo novo. O $ne também traz os antigos, sem poolStatus.
+     * */
+    private static Criteria listedCriteria() {
+        return Criteria.where("poolStatus").ne(WordSearchPoolStatus.READY)
+                .and("algorithmVersion").ne(LargeWordSearchGenerator.ALGORITHM_VERSION);
+    }
+
+    /*
+     * Os prontos no pool ficam de fora pelo mesmo motivo das listagens. Os do modo grande continuam: a busca
+     * só devolve ids, e eles são lidos por /get-large.
+     * */
+    private static Criteria wordsCriteria(List<String> words, boolean matchAll) {
+        List<String> normalizedWords = WordSearch.normalizeWords(words);
+        if (normalizedWords.isEmpty()) throw new IllegalArgumentException("Nenhuma palavra válida informada.");
+
+        Criteria criteria = Criteria.where("normalizedWords");
+        criteria = matchAll ? criteria.all(normalizedWords) : criteria.in(normalizedWords);
+        return criteria.and("poolStatus").ne(WordSearchPoolStatus.READY);
+    }
+
+    /*
+     * Caça-palavras salvos antes do campo normalizedWords existir não apareceriam nas buscas.
+     * Roda em lotes e só sobre os documentos sem o campo, então é barato depois da primeira vez.
+     * */
+    private void backfillNormalizedWords() {
+        Query query = new Query(Criteria.where("normalizedWords").exists(false).and("words").exists(true));
+        query.fields().include("words");
+
+        int updated = 0;
+        List<Document> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        try (var documents = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(WordSearch.class))) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                batch.add(document);
+                if (batch.size() == BACKFILL_BATCH_SIZE) {
+                    updated += writeNormalizedWords(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) updated += writeNormalizedWords(batch);
+        if (updated > 0) logger.info("normalizedWords preenchido em {} caça-palavras.", updated);
+    }
+
+    private int writeNormalizedWords(List<Document> documents) {
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, WordSearch.class);
+        for (Document document : documents) {
+            List<String> words = document.getList("words", String.class);
+            bulkOperations.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))),
+                    Update.update("normalizedWords", WordSearch.normalizeWords(words)));
+        }
+        bulkOperations.execute();
+        return documents.size();
+    }
+
+    private static void markServed(WordSearch wordSearch) {
+        wordSearch.setPoolStatus(WordSearchPoolStatus.SERVED);
+        wordSearch.setServedAt(LocalDateTime.now());
+        wordSearch.setLastAccessedAt(wordSearch.getServedAt());
     }
 
     /**
      * @return número de ocorrências da palavra.
      */
-    public int countOccurrencesOfWord(String word) {
-        Integer count = wordSearchRepository.countOccurrencesOfWord(word);
-        return count == null ? 0 : count;
+    public long countOccurrencesOfWord(String word) {
+        return wordFrequencyService.getOccurrences(word);
+    }
+
+    /**
+     * @return as k palavras mais usadas.
+     */
+    public List<WordFrequency> getMostUsedWords(int k) {
+        return wordFrequencyService.getTopWords(k);
     }
 }
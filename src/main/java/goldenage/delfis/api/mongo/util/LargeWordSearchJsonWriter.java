@@ -0,0 +1,54 @@
+/*
+ * Classe LargeWordSearchJsonWriter
+ * Escrita em streaming do JSON de caça-palavras grandes
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import goldenage.delfis.api.mongo.model.PackedWordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchGridCodec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class LargeWordSearchJsonWriter {
+    private static final int FLUSH_EVERY_ROWS = 64;
+
+    /**
+     * Escreve o caça-palavras direto no stream da resposta, uma linha do grid por vez.
+     * Só um buffer de gridSize caracteres é usado; o grid inteiro nunca vira uma string.
+     *
+     * Formato: {"id", "gridSize", "theme", "words": [...], "rows": ["ABC...", ...]}
+     */
+    public static void write(PackedWordSearch wordSearch, JsonFactory jsonFactory, OutputStream outputStream) throws IOException {
+        int gridSize = wordSearch.gridSize();
+        byte[] packedGrid = wordSearch.packedGrid();
+        char[] rowBuffer = new char[gridSize];
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", wordSearch.id());
+            generator.writeNumberField("gridSize", gridSize);
+            generator.writeStringField("theme", wordSearch.theme());
+
+            generator.writeArrayFieldStart("words");
+            for (String word : wordSearch.words()) generator.writeString(word);
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("rows");
+            for (int row = 0; row < gridSize; row++) {
+                WordSearchGridCodec.unpackRow(packedGrid, gridSize, row, rowBuffer);
+                generator.writeString(rowBuffer, 0, gridSize);
+                if ((row + 1) % FLUSH_EVERY_ROWS == 0) generator.flush();
+            }
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Classe NdjsonWriter
+ * Escrita em streaming de JSON delimitado por linhas (NDJSON)
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public class NdjsonWriter {
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final int FLUSH_EVERY_LINES = 100;
+
+    /**
+     * Escreve um objeto JSON por linha, consumindo o stream item a item, e fecha o stream no final.
+     * Com um stream de cursor do Mongo, só o lote atual do cursor fica em memória.
+     * O flush é feito a cada FLUSH_EVERY_LINES linhas: o writer desliga o FLUSH_AFTER_WRITE_VALUE do ObjectMapper,
+     * que faria um flush por objeto.
+     *
+     * @return quantidade de linhas escritas.
+     */
+    public static long write(Stream<?> items, ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long lines = 0;
+        try (items; JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            Iterator<?> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++lines % FLUSH_EVERY_LINES == 0) generator.flush();
+            }
+        }
+        return lines;
+    }
+}
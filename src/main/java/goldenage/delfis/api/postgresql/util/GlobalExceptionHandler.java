@@ -23,6 +23,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -90,6 +91,15 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Entidade não encontrada nos dados: " + ex.getMessage());
     }
 
+    /*
+    * Fila interna cheia (ex: escrita em lote no Mongo). O cliente pode tentar de novo depois.
+    * */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<String> handleRejectedExecutionException(RejectedExecutionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Serviço sobrecarregado: " + ex.getMessage());
+    }
+
     /*
     * Tratamento para problemas com transações.
     * */
@@ -4,9 +4,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.convert.RedisCustomConversions;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.util.SessionCodec;
+
+import java.util.List;
 
 @EnableRedisRepositories(basePackages = "goldenage.delfis.api.redis.repository")
 @Configuration
@@ -16,7 +20,18 @@ public class RedisConfig {
         RedisTemplate<String, Session> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new GenericToStringSerializer<>(String.class));
-        template.setValueSerializer(new GenericToStringSerializer<>(Session.class));
+        template.setValueSerializer(SessionCodec.INSTANCE);
         return template;
     }
+
+    /*
+     * O nome do bean precisa ser redisCustomConversions para o MappingRedisConverter dos repositories usá-lo.
+     * Com ele, o SessionRepository grava a sessão no campo _raw do hash com o SessionCodec.
+     * */
+    @Bean
+    public RedisCustomConversions redisCustomConversions() {
+        return new RedisCustomConversions(List.of(
+                SessionCodec.SessionToBytesConverter.INSTANCE,
+                SessionCodec.HashToSessionConverter.INSTANCE));
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Classe PresenceController
+ * Controller da presença dos usuários (online agora)
+ * Autor: agent
+ * Data: 19/10/2026
+ */
+
+package goldenage.delfis.api.redis.controller;
+
+import goldenage.delfis.api.redis.model.PresenceStatus;
+import goldenage.delfis.api.redis.service.PresenceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+@Schema(description = "Controlador responsável pela presença dos usuários")
+public class PresenceController {
+    private final PresenceService presenceService;
+
+    public PresenceController(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @GetMapping("/count-online")
+    @Operation(summary = "Contar usuários online", description = "Retorna quantos usuários mandaram heartbeat de sessão dentro da janela de presença.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Usuários online contados", content = @Content(schema = @Schema(implementation = Long.class)))
+    })
+    public ResponseEntity<Long> countOnline() {
+        return ResponseEntity.status(HttpStatus.OK).body(presenceService.countOnline());
+    }
+
+    @PostMapping("/check")
+    @Operation(summary = "Verificar presença de usuários", description = "Retorna, na ordem recebida, se cada usuário está online e quando foi visto pela última vez. Útil para a lista de amigos.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Presença verificada", content = @Content(array = @ArraySchema(schema = @Schema(implementation = PresenceStatus.class)))),
+            @ApiResponse(responseCode = "400", description = "Lista de usuários vazia ou grande demais", content = @Content)
+    })
+    public ResponseEntity<List<PresenceStatus>> checkPresence(@RequestBody List<Long> fkAppUserIds) {
+        if (fkAppUserIds.isEmpty() || fkAppUserIds.size() > 500) throw new IllegalArgumentException("Envie entre 1 e 500 usuários.");
+        if (fkAppUserIds.contains(null)) throw new IllegalArgumentException("A lista de usuários não pode ter ids nulos.");
+        return ResponseEntity.status(HttpStatus.OK).body(presenceService.getPresence(fkAppUserIds));
+    }
+}
@@ -7,22 +7,38 @@
 
 package goldenage.delfis.api.redis.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import goldenage.delfis.api.mongo.model.CursorPage;
+import goldenage.delfis.api.mongo.util.NdjsonWriter;
+import goldenage.delfis.api.mongo.service.SessionHistoryService;
 import goldenage.delfis.api.postgresql.model.AppUser;
 import goldenage.delfis.api.postgresql.service.AppUserService;
+import goldenage.delfis.api.redis.model.ActiveUserStats;
 import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.model.SessionEvent;
+import goldenage.delfis.api.redis.model.SessionEventResult;
+import goldenage.delfis.api.redis.model.SessionTimePoint;
+import goldenage.delfis.api.redis.service.ActiveUserService;
+import goldenage.delfis.api.redis.service.SessionEventService;
 import goldenage.delfis.api.redis.service.SessionService;
+import goldenage.delfis.api.redis.service.SessionTimeService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -31,15 +47,28 @@ import java.util.List;
 @Schema(description = "Controlador responsável pela gestão de sessões")
 public class SessionController {
     private final SessionService sessionService;
+    private final SessionTimeService sessionTimeService;
+    private final SessionEventService sessionEventService;
+    private final ActiveUserService activeUserService;
+    private final SessionHistoryService sessionHistoryService;
     private final AppUserService appUserService;
+    private final ObjectMapper objectMapper;
 
-    public SessionController(SessionService sessionService, AppUserService appUserService) {
+    public SessionController(SessionService sessionService, SessionTimeService sessionTimeService,
+                             SessionEventService sessionEventService, ActiveUserService activeUserService,
+                             SessionHistoryService sessionHistoryService, AppUserService appUserService, ObjectMapper objectMapper) {
         this.sessionService = sessionService;
+        this.sessionTimeService = sessionTimeService;
+        this.sessionEventService = sessionEventService;
+        this.activeUserService = activeUserService;
+        this.sessionHistoryService = sessionHistoryService;
         this.appUserService = appUserService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/get-all")
-    @Operation(summary = "Obter todas as sessões", description = "Retorna uma lista de todas as sessões.")
+    @Operation(summary = "Obter todas as sessões", deprecated = true,
+            description = "Retorna uma lista de todas as sessões, lendo o keyspace inteiro do Redis. Prefira /get-page ou /export.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de sessões encontradas", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Session.class)))),
             @ApiResponse(responseCode = "404", description = "Nenhuma sessão encontrada", content = @Content)
@@ -51,15 +80,84 @@ public class SessionController {
         throw new EntityNotFoundException("Nenhuma sessão encontrada.");
     }
 
+    @GetMapping("/get-page")
+    @Operation(summary = "Obter uma página de sessões",
+            description = "Retorna sessões paginadas por cursor, com filtro opcional por usuário e por estado. Envie o nextCursor recebido " +
+                    "no parâmetro after para buscar a próxima página. Sem usuário, a página pode trazer menos itens que o limite, " +
+                    "ou repetir uma sessão de outra página; a listagem só acaba quando nextCursor vier null.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de sessões", content = @Content(schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor, estado ou limite inválido", content = @Content)
+    })
+    public ResponseEntity<CursorPage<Session>> getSessionsPage(
+            @Parameter(description = "Filtra as sessões de um usuário")
+            @RequestParam(name = "fkAppUserId", required = false) Long fkAppUserId,
+            @Parameter(description = "all, open ou finished")
+            @RequestParam(name = "state", defaultValue = "all") String state,
+            @Parameter(description = "Cursor retornado em nextCursor pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > 500) throw new IllegalArgumentException("limit deve estar entre 1 e 500.");
+        return ResponseEntity.status(HttpStatus.OK).body(sessionService.getSessionsPage(fkAppUserId, parseState(state), after, limit));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exportar sessões", description = "Escreve as sessões em streaming, um JSON por linha (NDJSON), lendo o Redis página a página.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sessões exportadas", content = @Content(mediaType = NdjsonWriter.MEDIA_TYPE, schema = @Schema(implementation = Session.class))),
+            @ApiResponse(responseCode = "400", description = "Estado inválido", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> exportSessions(
+            @Parameter(description = "Filtra as sessões de um usuário")
+            @RequestParam(name = "fkAppUserId", required = false) Long fkAppUserId,
+            @Parameter(description = "all, open ou finished")
+            @RequestParam(name = "state", defaultValue = "all") String state) {
+        Boolean finished = parseState(state);
+        StreamingResponseBody body = outputStream -> NdjsonWriter.write(sessionService.streamSessions(fkAppUserId, finished), objectMapper, outputStream);
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE)).body(body);
+    }
+
     @PostMapping("/insert/{fkAppUserId}")
     @Operation(summary = "Inserir uma nova sessão", description = "Insere uma nova sessão.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Sessão inserida", content = @Content(schema = @Schema(implementation = Session.class))),
+            @ApiResponse(responseCode = "404", description = "Usuário não encontrado", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Usuário já possui uma sessão aberta", content = @Content)
     })
     public ResponseEntity<Session> insertSession(@PathVariable long fkAppUserId) {
         verifyFk(fkAppUserId);
-        Session session = new Session(null, fkAppUserId, LocalDateTime.now(), null);
-        return ResponseEntity.status(HttpStatus.OK).body(sessionService.saveSession(session));
+        Session session = new Session(null, fkAppUserId, LocalDateTime.now(), null, null);
+        return ResponseEntity.status(HttpStatus.OK).body(sessionService.insertSession(session));
+    }
+
+    @GetMapping("/active-users")
+    @Operation(summary = "Obter usuários ativos",
+            description = "Retorna quantos usuários iniciaram sessão no dia, nos últimos 7 e nos últimos 30 dias até a data informada " +
+                    "(hoje, se não informada). As contagens são aproximadas, com erro padrão de 0,81%.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Usuários ativos contados", content = @Content(schema = @Schema(implementation = ActiveUserStats.class)))
+    })
+    public ResponseEntity<ActiveUserStats> getActiveUsers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.status(HttpStatus.OK).body(activeUserService.getStats(date != null ? date : LocalDate.now()));
+    }
+
+    @PostMapping("/events/{fkAppUserId}")
+    @Operation(summary = "Aplicar eventos de sessão em lote",
+            description = "Aplica, na ordem, inícios e fins de sessão que o app registrou offline. O usuário é validado uma vez " +
+                    "e todos os eventos são gravados juntos; o resultado de cada evento vem na ordem recebida.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Eventos processados", content = @Content(array = @ArraySchema(schema = @Schema(implementation = SessionEventResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Lista de eventos vazia, grande demais ou com evento inválido", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Usuário não encontrado", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Sessões do usuário alteradas por outra requisição durante o lote", content = @Content)
+    })
+    public ResponseEntity<List<SessionEventResult>> applySessionEvents(
+            @PathVariable long fkAppUserId,
+            @Valid @RequestBody List<@Valid SessionEvent> events) {
+        if (events.isEmpty() || events.size() > 100) throw new IllegalArgumentException("Envie entre 1 e 100 eventos.");
+        verifyFk(fkAppUserId);
+        return ResponseEntity.status(HttpStatus.OK).body(sessionEventService.applyEvents(fkAppUserId, events));
     }
 
     @DeleteMapping("/delete/{id}")
@@ -73,17 +171,60 @@ public class SessionController {
     }
 
     @PostMapping("/finish/{fkAppUserId}")
-    @Operation(summary = "Finalizar uma sessão", description = "Finaliza uma sessão aberta atualizando o campo finalDatetime com a data/hora de finalização.")
+    @Operation(summary = "Finalizar uma sessão", description = "Finaliza a sessão aberta do usuário atualizando o campo finalDatetime com a data/hora de finalização, numa única chamada ao Redis.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Sessão finalizada com sucesso", content = @Content(schema = @Schema(implementation = Session.class))),
             @ApiResponse(responseCode = "404", description = "Nenhuma sessão aberta encontrada para o usuário fornecido", content = @Content)
     })
     public ResponseEntity<Session> finishSession(@PathVariable long fkAppUserId) {
-        verifyFk(fkAppUserId);
+        Session session = sessionService.finishOpenSession(fkAppUserId);
+        if (session == null) throw new EntityNotFoundException("Nenhuma sessão aberta desse usuário.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(session);
+    }
+
+    @PostMapping("/heartbeat/{fkAppUserId}")
+    @Operation(summary = "Heartbeat da sessão aberta",
+            description = "Mantém a sessão aberta do usuário ativa. Sessões sem heartbeat por mais que o tempo de inatividade " +
+                    "configurado são finalizadas automaticamente no horário do último heartbeat, quando o sweeper está ligado " +
+                    "(delfis.session.sweeper.enabled).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Heartbeat registrado", content = @Content(schema = @Schema(implementation = Boolean.class))),
+            @ApiResponse(responseCode = "404", description = "Nenhuma sessão aberta encontrada para o usuário fornecido", content = @Content)
+    })
+    public ResponseEntity<Boolean> heartbeat(@PathVariable long fkAppUserId) {
+        if (!sessionService.heartbeat(fkAppUserId)) throw new EntityNotFoundException("Nenhuma sessão aberta desse usuário.");
+        return ResponseEntity.status(HttpStatus.OK).body(true);
+    }
+
+    @GetMapping("/get-open-by-app-user-id/{fkAppUserId}")
+    @Operation(summary = "Obter a sessão aberta de um usuário", description = "Retorna a sessão ainda não finalizada do usuário.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sessão aberta encontrada", content = @Content(schema = @Schema(implementation = Session.class))),
+            @ApiResponse(responseCode = "404", description = "Nenhuma sessão aberta encontrada para o usuário fornecido", content = @Content)
+    })
+    public ResponseEntity<Session> getOpenSessionByFkAppUserId(@PathVariable long fkAppUserId) {
         Session session = sessionService.getUnfinishedSessionByFkAppUserById(fkAppUserId);
         if (session == null) throw new EntityNotFoundException("Nenhuma sessão aberta desse usuário.");
 
-        return ResponseEntity.status(HttpStatus.OK).body(sessionService.finishSession(session.getId()));
+        return ResponseEntity.status(HttpStatus.OK).body(session);
+    }
+
+    @GetMapping("/get-by-app-user-id/{fkAppUserId}")
+    @Operation(summary = "Obter sessões de um usuário", description = "Retorna as sessões do usuário, da mais recente para a mais antiga.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista de sessões encontradas", content = @Content(array = @ArraySchema(schema = @Schema(implementation = Session.class)))),
+            @ApiResponse(responseCode = "400", description = "Limite inválido", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Nenhuma sessão encontrada para o usuário fornecido", content = @Content)
+    })
+    public ResponseEntity<List<Session>> getSessionsByFkAppUserId(@PathVariable long fkAppUserId,
+                                                                  @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > 1000) throw new IllegalArgumentException("O limite deve estar entre 1 e 1000.");
+
+        List<Session> sessions = sessionService.getSessionsByFkAppUserId(fkAppUserId, limit);
+        if (sessions == null) throw new EntityNotFoundException("Nenhuma sessão encontrada para o usuário.");
+
+        return ResponseEntity.status(HttpStatus.OK).body(sessions);
     }
 
     @GetMapping("/get-total-session-time-by-app-user-id/{fkAppUserId}")
@@ -96,15 +237,68 @@ public class SessionController {
                     content = @Content)
     })
     public ResponseEntity<Double> getTotalSessionTimeByFkAppUserId(@PathVariable long fkAppUserId) {
-        List<Session> sessions = sessionService.getFinishedSessionsByFkAppUserId(fkAppUserId);
-        if (sessions == null || sessions.isEmpty())
+        Long totalSeconds = sessionTimeService.getTotalSeconds(fkAppUserId);
+        if (totalSeconds == null)
             throw new EntityNotFoundException("Sem sessões finalizadas para o ID informado.");
 
-        return ResponseEntity.status(HttpStatus.OK).body(sessions
-                .stream()
-                .map(session -> Duration.between(session.getInitialDatetime(), session.getFinalDatetime()))
-                .reduce(Duration.ZERO, Duration::plus)
-                .getSeconds() / 60.0);
+        return ResponseEntity.status(HttpStatus.OK).body(totalSeconds / 60.0);
+    }
+
+    @GetMapping("/get-session-time-series-by-app-user-id/{fkAppUserId}")
+    @Operation(summary = "Obter série de tempo de sessão por ID de usuário",
+            description = "Retorna o tempo de sessão do usuário, em minutos, por dia ou por semana no período informado. " +
+                    "Sem datas, retorna os últimos 30 dias ou as últimas 12 semanas.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Série de tempo de sessão calculada com sucesso",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = SessionTimePoint.class)))),
+            @ApiResponse(responseCode = "400", description = "Granularidade ou período inválido", content = @Content)
+    })
+    public ResponseEntity<List<SessionTimePoint>> getSessionTimeSeriesByFkAppUserId(
+            @PathVariable long fkAppUserId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        boolean weekly = switch (granularity.toLowerCase()) {
+            case "day" -> false;
+            case "week" -> true;
+            default -> throw new IllegalArgumentException("Granularidade inválida: " + granularity + ". Use day ou week.");
+        };
+
+        if (to == null) to = LocalDate.now();
+        if (from == null) from = weekly ? to.minusWeeks(11) : to.minusDays(29);
+
+        return ResponseEntity.status(HttpStatus.OK).body(sessionTimeService.getTimeSeries(fkAppUserId, from, to, weekly));
+    }
+
+    @GetMapping("/get-session-history-by-app-user-id/{fkAppUserId}")
+    @Operation(summary = "Obter histórico de tempo de sessão por ID de usuário",
+            description = "Retorna o tempo de sessão do usuário, em minutos, por dia, semana ou mês, a partir do histórico " +
+                    "de sessões no Mongo, que inclui as sessões já removidas do Redis. Cada sessão conta no período em que terminou. " +
+                    "Sem datas, retorna os últimos 12 meses.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Histórico de tempo de sessão calculado com sucesso",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = SessionTimePoint.class)))),
+            @ApiResponse(responseCode = "400", description = "Granularidade ou período inválido", content = @Content)
+    })
+    public ResponseEntity<List<SessionTimePoint>> getSessionHistoryByFkAppUserId(
+            @PathVariable long fkAppUserId,
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to == null) to = LocalDate.now();
+        if (from == null) from = to.minusMonths(11);
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(sessionHistoryService.getTimeSeries(fkAppUserId, from, to, granularity.toLowerCase()));
+    }
+
+    private static Boolean parseState(String state) {
+        return switch (state.toLowerCase()) {
+            case "all" -> null;
+            case "open" -> false;
+            case "finished" -> true;
+            default -> throw new IllegalArgumentException("Estado inválido: " + state + ". Use all, open ou finished.");
+        };
     }
 
     private void verifyFk(long fkAppUserId) {
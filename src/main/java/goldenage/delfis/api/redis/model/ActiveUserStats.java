@@ -0,0 +1,28 @@
+/*
+ * Record ActiveUserStats
+ * Usuários ativos (que iniciaram sessão) no dia, na semana e no mês até uma data
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+
+@Schema(description = "Usuários ativos até uma data. Contagens aproximadas (HyperLogLog, erro padrão de 0,81%).")
+public record ActiveUserStats(
+        @Schema(description = "Último dia considerado", example = "2026-10-19")
+        LocalDate date,
+
+        @Schema(description = "Usuários ativos no dia", example = "1250")
+        long dailyActiveUsers,
+
+        @Schema(description = "Usuários ativos nos 7 dias terminando na data", example = "4310")
+        long weeklyActiveUsers,
+
+        @Schema(description = "Usuários ativos nos 30 dias terminando na data", example = "9800")
+        long monthlyActiveUsers
+) {
+}
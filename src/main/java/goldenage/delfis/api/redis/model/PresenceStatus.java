@@ -0,0 +1,25 @@
+/*
+ * Record PresenceStatus
+ * Presença de um usuário: se está online e quando foi visto pela última vez
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Presença de um usuário.")
+public record PresenceStatus(
+        @Schema(description = "Id do usuário", example = "42")
+        long fkAppUserId,
+
+        @Schema(description = "Se o usuário mandou heartbeat dentro da janela de presença", example = "true")
+        boolean online,
+
+        @Schema(description = "Último heartbeat recebido; null se o usuário não está na presença", example = "2026-10-19T08:30:00")
+        LocalDateTime lastSeen
+) {
+}
@@ -1,11 +1,13 @@
 package goldenage.delfis.api.redis.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.redis.core.RedisHash;
+import org.springframework.data.redis.core.TimeToLive;
 
 import java.time.LocalDateTime;
 
@@ -33,4 +35,10 @@ public class Session {
 
     @Schema(description = "Data e hora de término da sessão", example = "2024-09-23T09:30:00")
     private LocalDateTime finalDatetime;
+
+    /* TTL da chave no Redis, em segundos. Só as sessões abertas expiram; null mantém a sessão sem expiração */
+    @JsonIgnore
+    @TimeToLive
+    @Schema(hidden = true)
+    private Long timeToLive;
 }
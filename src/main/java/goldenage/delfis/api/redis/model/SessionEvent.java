@@ -0,0 +1,28 @@
+/*
+ * Record SessionEvent
+ * Início ou fim de sessão registrado pelo app, para ser reenviado em lote
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Evento de sessão registrado pelo app, com o horário em que aconteceu.")
+public record SessionEvent(
+        @NotNull(message = "O tipo do evento não pode ser nulo")
+        @Schema(description = "START abre uma sessão, FINISH finaliza a sessão aberta", example = "START")
+        Type type,
+
+        @NotNull(message = "O horário do evento não pode ser nulo")
+        @Schema(description = "Horário do evento", example = "2026-10-19T08:30:00")
+        LocalDateTime at
+) {
+    public enum Type {
+        START, FINISH
+    }
+}
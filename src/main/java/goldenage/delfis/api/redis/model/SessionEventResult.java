@@ -0,0 +1,36 @@
+/*
+ * Record SessionEventResult
+ * Resultado da aplicação de um SessionEvent enviado em lote
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Resultado de um evento de sessão enviado em lote.")
+public record SessionEventResult(
+        @Schema(description = "Posição do evento na lista enviada", example = "0")
+        int index,
+
+        @Schema(description = "Tipo do evento", example = "START")
+        SessionEvent.Type type,
+
+        @Schema(description = "Se o evento foi aplicado", example = "true")
+        boolean applied,
+
+        @Schema(description = "Sessão aberta ou finalizada pelo evento", example = "0f8fad5b-d9cb-469f-a165-70867728950e")
+        String sessionId,
+
+        @Schema(description = "Motivo de o evento não ter sido aplicado", example = "Nenhuma sessão aberta.")
+        String message
+) {
+    public static SessionEventResult applied(int index, SessionEvent.Type type, String sessionId) {
+        return new SessionEventResult(index, type, true, sessionId, null);
+    }
+
+    public static SessionEventResult rejected(int index, SessionEvent.Type type, String message) {
+        return new SessionEventResult(index, type, false, null, message);
+    }
+}
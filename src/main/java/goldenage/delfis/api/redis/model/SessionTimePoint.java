@@ -0,0 +1,22 @@
+/*
+ * Record SessionTimePoint
+ * Ponto da série de tempo de sessão de um usuário (um dia ou uma semana)
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+
+@Schema(description = "Tempo de sessão de um usuário em um dia ou semana.")
+public record SessionTimePoint(
+        @Schema(description = "Primeiro dia do período (segunda-feira, para semanas)", example = "2026-10-19")
+        LocalDate start,
+
+        @Schema(description = "Tempo de sessão no período, em minutos", example = "42.5")
+        double minutes
+) {
+}
@@ -11,10 +11,6 @@ import goldenage.delfis.api.redis.model.Session;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.repository.CrudRepository;
 
-import java.util.List;
-
 @EnableRedisRepositories
 public interface SessionRepository extends CrudRepository<Session, String> {
-    List<Session> findSessionByFkAppUserIdAndFinalDatetimeIsNull(long fkAppUserId);
-    List<Session> findSessionByFkAppUserIdAndFinalDatetimeIsNotNull(long fkAppUserId);
 }
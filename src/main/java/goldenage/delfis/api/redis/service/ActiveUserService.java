@@ -0,0 +1,131 @@
+/*
+ * Classe ActiveUserService
+ * Conta usuários ativos por dia com HyperLogLogs no Redis, alimentados pelos inícios de sessão
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.ActiveUserStats;
+import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.repository.SessionRepository;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class ActiveUserService {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUserService.class);
+    private static final String BACKFILL_VERSION = "1";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SessionRepository sessionRepository;
+    private final Duration retention;
+
+    public ActiveUserService(StringRedisTemplate stringRedisTemplate, SessionRepository sessionRepository,
+                             @Value("${delfis.session.active-users.retention:400d}") Duration retention) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionRepository = sessionRepository;
+        this.retention = retention;
+    }
+
+    /*
+     * Preenche os HyperLogLogs dos dias anteriores a partir das sessões existentes, lendo o set de sessões
+     * com SSCAN em lotes e gravando cada lote num pipeline. PFADD é idempotente, então rodar de novo
+     * (por exemplo, se a aplicação cair no meio) não conta ninguém duas vezes.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            if (BACKFILL_VERSION.equals(stringRedisTemplate.opsForValue().get(SessionKeys.ACTIVE_USERS_BACKFILL))) return;
+
+            long sessions = 0;
+            List<String> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+            ScanOptions options = ScanOptions.scanOptions().count(BACKFILL_BATCH_SIZE).build();
+            try (Cursor<String> cursor = stringRedisTemplate.opsForSet().scan(SessionKeys.ALL_SESSIONS, options)) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() == BACKFILL_BATCH_SIZE) {
+                        sessions += backfillBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            sessions += backfillBatch(batch);
+
+            stringRedisTemplate.opsForValue().set(SessionKeys.ACTIVE_USERS_BACKFILL, BACKFILL_VERSION);
+            logger.info("Usuários ativos preenchidos a partir de {} sessões.", sessions);
+        } catch (RuntimeException e) {
+            logger.error("Erro ao preencher os usuários ativos: {}", e.getMessage());
+        }
+    }
+
+    /*
+     * Registra o usuário como ativo no dia de início da sessão. Cada chave diária ocupa até ~12 KB e expira
+     * depois do período de retenção.
+     * */
+    public void recordStart(Session session) {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            recordStart(connection, session);
+            return null;
+        });
+    }
+
+    /*
+     * Mesmo que recordStart, mas só enfileira os comandos na conexão, para quem já está num MULTI ou pipeline.
+     * */
+    public void recordStart(RedisConnection connection, Session session) {
+        LocalDate day = session.getInitialDatetime().toLocalDate();
+        if (day.isBefore(LocalDate.now().minus(retention))) return;
+
+        byte[] key = SessionKeys.activeUsers(day.toEpochDay()).getBytes(StandardCharsets.UTF_8);
+        connection.hyperLogLogCommands().pfAdd(key, String.valueOf(session.getFkAppUserId()).getBytes(StandardCharsets.UTF_8));
+        connection.keyCommands().expireAt(key, day.plus(retention).plusDays(1).toEpochDay() * 86400);
+    }
+
+    /**
+     * @return usuários ativos no dia, nos 7 e nos 30 dias terminando em date. WAU e MAU vêm de um PFCOUNT sobre as
+     * chaves diárias, que conta a união sem contar duas vezes quem entrou em mais de um dia
+     */
+    public ActiveUserStats getStats(LocalDate date) {
+        return new ActiveUserStats(date, countActiveUsers(date, 1), countActiveUsers(date, 7), countActiveUsers(date, 30));
+    }
+
+    private long countActiveUsers(LocalDate lastDay, int days) {
+        String[] keys = new String[days];
+        for (int i = 0; i < days; i++) keys[i] = SessionKeys.activeUsers(lastDay.minusDays(i).toEpochDay());
+        Long count = stringRedisTemplate.opsForHyperLogLog().size(keys);
+        return count != null ? count : 0;
+    }
+
+    private int backfillBatch(List<String> ids) {
+        if (ids.isEmpty()) return 0;
+
+        List<Session> sessions = new ArrayList<>(ids.size());
+        sessionRepository.findAllById(ids).forEach(session -> {
+            if (session.getInitialDatetime() != null) sessions.add(session);
+        });
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            sessions.forEach(session -> recordStart(connection, session));
+            return null;
+        });
+        return sessions.size();
+    }
+}
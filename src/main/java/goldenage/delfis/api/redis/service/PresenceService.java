@@ -0,0 +1,88 @@
+/*
+ * Classe PresenceService
+ * Presença em tempo real dos usuários ("online agora"), mantida pelos heartbeats das sessões
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.PresenceStatus;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Um sorted set só, com o id do usuário como membro e o último heartbeat como score:
+ * marcar presença é um ZADD e contar os online é um ZCOUNT, os dois O(log n).
+ * Quem passa da janela sem heartbeat deixa de contar na hora e é removido pelo trim periódico.
+ * */
+@Service
+public class PresenceService {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration onlineWindow;
+
+    public PresenceService(StringRedisTemplate stringRedisTemplate,
+                           @Value("${delfis.presence.online-window:2m}") Duration onlineWindow) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.onlineWindow = onlineWindow;
+    }
+
+    public void markOnline(long fkAppUserId) {
+        stringRedisTemplate.opsForZSet().add(SessionKeys.PRESENCE, String.valueOf(fkAppUserId), System.currentTimeMillis());
+    }
+
+    /**
+     * @return quantidade de usuários com heartbeat dentro da janela de presença
+     */
+    public long countOnline() {
+        Long count = stringRedisTemplate.opsForZSet().count(SessionKeys.PRESENCE, onlineSince(), Double.POSITIVE_INFINITY);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @return presença de cada usuário, na ordem recebida, lida com um único ZMSCORE
+     */
+    public List<PresenceStatus> getPresence(List<Long> fkAppUserIds) {
+        Object[] members = fkAppUserIds.stream().map(String::valueOf).toArray();
+        List<Double> scores = stringRedisTemplate.opsForZSet().score(SessionKeys.PRESENCE, members);
+
+        long onlineSince = onlineSince();
+        List<PresenceStatus> statuses = new ArrayList<>(fkAppUserIds.size());
+        for (int i = 0; i < fkAppUserIds.size(); i++) {
+            Double score = scores != null ? scores.get(i) : null;
+            LocalDateTime lastSeen = score != null
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(score.longValue()), ZoneId.systemDefault())
+                    : null;
+            statuses.add(new PresenceStatus(fkAppUserIds.get(i), score != null && score >= onlineSince, lastSeen));
+        }
+        return statuses;
+    }
+
+    @Scheduled(initialDelayString = "${delfis.presence.trim-interval-ms:60000}",
+            fixedDelayString = "${delfis.presence.trim-interval-ms:60000}")
+    public void trimStale() {
+        try {
+            stringRedisTemplate.opsForZSet().removeRangeByScore(SessionKeys.PRESENCE, Double.NEGATIVE_INFINITY, onlineSince() - 1);
+        } catch (RuntimeException e) {
+            logger.error("Erro ao remover usuários inativos da presença: {}", e.getMessage());
+        }
+    }
+
+    private long onlineSince() {
+        return System.currentTimeMillis() - onlineWindow.toMillis();
+    }
+}
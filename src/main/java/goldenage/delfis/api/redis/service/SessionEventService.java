@@ -0,0 +1,187 @@
+/*
+ * Classe SessionEventService
+ * Aplica em lote os eventos de sessão que o app guardou enquanto estava offline
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.model.SessionEvent;
+import goldenage.delfis.api.redis.model.SessionEventResult;
+import goldenage.delfis.api.redis.util.SessionCodec;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+@Service
+public class SessionEventService {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SessionTimeService sessionTimeService;
+    private final ActiveUserService activeUserService;
+    private final SessionStreamService sessionStreamService;
+    private final Duration openTtl;
+    private final boolean sweeperEnabled;
+
+    public SessionEventService(StringRedisTemplate stringRedisTemplate, SessionTimeService sessionTimeService,
+                               ActiveUserService activeUserService, SessionStreamService sessionStreamService,
+                               @Value("${delfis.session.open-ttl:1h}") Duration openTtl,
+                               @Value("${delfis.session.sweeper.enabled:false}") boolean sweeperEnabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionTimeService = sessionTimeService;
+        this.activeUserService = activeUserService;
+        this.sessionStreamService = sessionStreamService;
+        this.openTtl = openTtl;
+        this.sweeperEnabled = sweeperEnabled;
+    }
+
+    /*
+     * Lê o estado do usuário uma vez (ponteiro da sessão aberta e a sessão), simula os eventos em Java e grava tudo
+     * num único pipeline com MULTI/EXEC. O ponteiro fica sob WATCH desde a leitura: se outra requisição abrir ou
+     * finalizar uma sessão do usuário no meio, o EXEC é descartado e o lote é refeito a partir do estado novo.
+     * Eventos que não se aplicam (FINISH sem sessão aberta, START com sessão aberta, fora de ordem) são rejeitados
+     * um a um, sem impedir os outros.
+     * */
+    public List<SessionEventResult> applyEvents(long fkAppUserId, List<SessionEvent> events) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<SessionEventResult> results = stringRedisTemplate.execute(
+                    (RedisCallback<List<SessionEventResult>>) connection -> tryApplyEvents(connection, fkAppUserId, events));
+            if (results != null) return results;
+        }
+        throw new DataIntegrityViolationException("As sessões do usuário foram alteradas durante o envio dos eventos. Tente novamente.");
+    }
+
+    /**
+     * @return resultados por evento, ou null se o EXEC foi descartado pelo WATCH
+     */
+    private List<SessionEventResult> tryApplyEvents(RedisConnection connection, long fkAppUserId, List<SessionEvent> events) {
+        byte[] openKey = bytes(SessionKeys.openSession(fkAppUserId));
+        connection.watch(openKey);
+
+        Session initiallyOpen = readOpenSession(connection, openKey);
+        Session open = initiallyOpen;
+        LocalDateTime lastEventAt = open != null ? open.getInitialDatetime() : null;
+        LocalDateTime latestAllowed = LocalDateTime.now().plus(MAX_CLOCK_SKEW);
+
+        List<SessionEventResult> results = new ArrayList<>(events.size());
+        Map<String, Session> touched = new LinkedHashMap<>();
+        Set<String> started = new HashSet<>();
+
+        for (int i = 0; i < events.size(); i++) {
+            SessionEvent event = events.get(i);
+            LocalDateTime at = event.at().truncatedTo(ChronoUnit.SECONDS);
+
+            if (at.isAfter(latestAllowed)) {
+                results.add(SessionEventResult.rejected(i, event.type(), "Horário do evento no futuro."));
+            } else if (lastEventAt != null && at.isBefore(lastEventAt)) {
+                results.add(SessionEventResult.rejected(i, event.type(), "Evento anterior ao último evento aplicado."));
+            } else if (event.type() == SessionEvent.Type.START) {
+                if (open != null) {
+                    results.add(SessionEventResult.rejected(i, event.type(), "Usuário já possui uma sessão aberta."));
+                    continue;
+                }
+                open = new Session(UUID.randomUUID().toString(), fkAppUserId, at, null, null);
+                touched.put(open.getId(), open);
+                started.add(open.getId());
+                lastEventAt = at;
+                results.add(SessionEventResult.applied(i, event.type(), open.getId()));
+            } else {
+                if (open == null) {
+                    results.add(SessionEventResult.rejected(i, event.type(), "Nenhuma sessão aberta."));
+                    continue;
+                }
+                open.setFinalDatetime(at);
+                touched.put(open.getId(), open);
+                results.add(SessionEventResult.applied(i, event.type(), open.getId()));
+                open = null;
+                lastEventAt = at;
+            }
+        }
+
+        if (touched.isEmpty()) {
+            connection.unwatch();
+            return results;
+        }
+
+        connection.openPipeline();
+        connection.multi();
+        for (Session session : touched.values()) {
+            writeSession(connection, session);
+            if (started.contains(session.getId())) {
+                connection.zSetCommands().zAdd(bytes(SessionKeys.userSessions(fkAppUserId)),
+                        SessionKeys.score(session.getInitialDatetime()), bytes(session.getId()));
+                activeUserService.recordStart(connection, session);
+                sessionStreamService.publishStart(connection, session);
+            }
+            if (session.getFinalDatetime() != null) {
+                sessionTimeService.addSession(connection, session);
+                sessionStreamService.publishFinish(connection, session);
+                connection.zSetCommands().zRem(bytes(SessionKeys.HEARTBEATS), bytes(session.getId()));
+            }
+        }
+        if (open != initiallyOpen) {
+            if (open != null) {
+                // Mesmas regras do SessionService.insertSession: TTL e entrada no sweeper só com o sweeper ligado
+                if (sweeperEnabled) {
+                    connection.stringCommands().setEx(openKey, openTtl.toSeconds(), bytes(open.getId()));
+                    connection.zSetCommands().zAdd(bytes(SessionKeys.HEARTBEATS), System.currentTimeMillis(), bytes(open.getId()));
+                } else {
+                    connection.stringCommands().set(openKey, bytes(open.getId()));
+                }
+                connection.zSetCommands().zAdd(bytes(SessionKeys.PRESENCE), System.currentTimeMillis(), bytes(String.valueOf(fkAppUserId)));
+            } else {
+                connection.keyCommands().del(openKey);
+                connection.zSetCommands().zRem(bytes(SessionKeys.PRESENCE), bytes(String.valueOf(fkAppUserId)));
+            }
+        }
+        connection.exec();
+        List<Object> pipelineResults = connection.closePipeline();
+
+        boolean discarded = pipelineResults.isEmpty() || !(pipelineResults.get(pipelineResults.size() - 1) instanceof List);
+        return discarded ? null : results;
+    }
+
+    private Session readOpenSession(RedisConnection connection, byte[] openKey) {
+        byte[] sessionId = connection.stringCommands().get(openKey);
+        if (sessionId == null) return null;
+
+        Map<byte[], byte[]> hash = connection.hashCommands().hGetAll(bytes(SessionKeys.sessionHash(new String(sessionId, StandardCharsets.UTF_8))));
+        if (hash == null || hash.isEmpty()) return null;
+
+        Map<String, byte[]> fields = new HashMap<>();
+        hash.forEach((field, value) -> fields.put(new String(field, StandardCharsets.UTF_8), value));
+        Session session = SessionCodec.HashToSessionConverter.INSTANCE.convert(fields);
+        session.setId(new String(sessionId, StandardCharsets.UTF_8));
+        return session;
+    }
+
+    /*
+     * Grava a sessão no mesmo layout do SessionRepository (hash com _raw e id no set "Session"),
+     * com o TTL de sessão aberta (só com o sweeper ligado) ou sem expiração se ela já foi finalizada.
+     * */
+    private void writeSession(RedisConnection connection, Session session) {
+        byte[] key = bytes(SessionKeys.sessionHash(session.getId()));
+        connection.keyCommands().del(key);
+        connection.hashCommands().hSet(key, bytes(SessionCodec.RAW_FIELD), SessionCodec.encode(session));
+        connection.setCommands().sAdd(bytes(SessionKeys.ALL_SESSIONS), bytes(session.getId()));
+        if (session.getFinalDatetime() == null && sweeperEnabled) connection.keyCommands().expire(key, openTtl.toSeconds());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -7,26 +7,158 @@
 
 package goldenage.delfis.api.redis.service;
 
+import goldenage.delfis.api.mongo.model.CursorPage;
 import goldenage.delfis.api.redis.model.Session;
 import goldenage.delfis.api.redis.repository.SessionRepository;
+import goldenage.delfis.api.redis.util.SessionCodec;
+import goldenage.delfis.api.redis.util.SessionKeys;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SessionService {
+    private static final Logger logger = LoggerFactory.getLogger(SessionService.class);
+    private static final String INDEX_VERSION = "4";
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    /* Apaga o ponteiro da sessão aberta só se ele ainda apontar para a sessão informada */
+    private static final RedisScript<Long> RELEASE_OPEN_SESSION = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    private static final RedisScript<Session> FINISH_SESSION =
+            RedisScript.of(new ClassPathResource("scripts/finish-session.lua"), Session.class);
+
+    /* SSCAN a partir de um cursor recebido do cliente; o Cursor do Spring Data sempre começa do zero */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCAN_SESSION_IDS = RedisScript.of(
+            "return redis.call('SSCAN', KEYS[1], ARGV[1], 'COUNT', ARGV[2])", List.class);
 
     private final SessionRepository sessionRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SessionTimeService sessionTimeService;
+    private final ActiveUserService activeUserService;
+    private final PresenceService presenceService;
+    private final SessionStreamService sessionStreamService;
+    private final Duration idleTimeout;
+    private final Duration openTtl;
+    private final int sweepBatchSize;
+    private final boolean sweeperEnabled;
 
-    public SessionService(SessionRepository sessionRepository) {
+    public SessionService(SessionRepository sessionRepository, StringRedisTemplate stringRedisTemplate,
+                          SessionTimeService sessionTimeService, ActiveUserService activeUserService,
+                          PresenceService presenceService, SessionStreamService sessionStreamService,
+                          @Value("${delfis.session.idle-timeout:10m}") Duration idleTimeout,
+                          @Value("${delfis.session.open-ttl:1h}") Duration openTtl,
+                          @Value("${delfis.session.sweep-batch-size:500}") int sweepBatchSize,
+                          @Value("${delfis.session.sweeper.enabled:false}") boolean sweeperEnabled) {
+        if (openTtl.compareTo(idleTimeout) <= 0 || sweepBatchSize < 1)
+            throw new IllegalArgumentException("Configuração de sessão inválida: open-ttl=" + openTtl
+                    + " deve ser maior que idle-timeout=" + idleTimeout + " e sweep-batch-size=" + sweepBatchSize + " positivo.");
         this.sessionRepository = sessionRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionTimeService = sessionTimeService;
+        this.activeUserService = activeUserService;
+        this.presenceService = presenceService;
+        this.sessionStreamService = sessionStreamService;
+        this.idleTimeout = idleTimeout;
+        this.openTtl = openTtl;
+        this.sweepBatchSize = sweepBatchSize;
+        this.sweeperEnabled = sweeperEnabled;
+    }
+
+    /*
+     * Monta o índice por usuário (sorted set + ponteiro da sessão aberta) e os contadores de tempo
+     * a partir das sessões que já existiam. Roda uma vez por versão do índice: depois disso tudo é mantido
+     * pelos métodos de escrita deste service. Cada passo pode ser repetido sem duplicar nada.
+     * Se houver mais de uma sessão aberta para o mesmo usuário, o ponteiro fica com a mais recente.
+     * Com o sweeper ligado, as sessões abertas que já existiam entram no heartbeat com o horário da montagem, e não
+     * com o de início: uma sessão abandonada é finalizada depois de idle-timeout com o tempo que ela teve até o deploy,
+     * em vez de zero.
+     * Todas as sessões são regravadas, o que converte as gravadas antes do SessionCodec para o campo _raw
+     * (o script de finalização só lê esse formato).
+     * Sessões finalizadas que já foram removidas pelo histórico não estão mais aqui: se a versão do índice mudar,
+     * o rebuild dos contadores de tempo não vai somar essas sessões.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            if (INDEX_VERSION.equals(stringRedisTemplate.opsForValue().get(SessionKeys.INDEX_VERSION))) return;
+
+            List<Session> sessions = new ArrayList<>();
+            sessionRepository.findAll().forEach(sessions::add);
+            sessions.sort(Comparator.comparing(Session::getInitialDatetime, Comparator.nullsLast(Comparator.reverseOrder())));
+
+            for (Session session : sessions) {
+                if (session.getInitialDatetime() == null) continue;
+                session.setInitialDatetime(session.getInitialDatetime().truncatedTo(ChronoUnit.SECONDS));
+                if (session.getFinalDatetime() != null)
+                    session.setFinalDatetime(session.getFinalDatetime().truncatedTo(ChronoUnit.SECONDS));
+                boolean open = session.getFinalDatetime() == null;
+                session.setTimeToLive(open && sweeperEnabled ? openTtl.toSeconds() : null);
+                sessionRepository.save(session);
+                indexSession(session);
+                if (open) {
+                    setOpenPointerIfAbsent(session);
+                    if (sweeperEnabled)
+                        stringRedisTemplate.opsForZSet().addIfAbsent(SessionKeys.HEARTBEATS, session.getId(), System.currentTimeMillis());
+                }
+            }
+            sessionTimeService.rebuild(sessions.stream().filter(session -> session.getFinalDatetime() != null).toList());
+
+            stringRedisTemplate.opsForValue().set(SessionKeys.INDEX_VERSION, INDEX_VERSION);
+            logger.info("Índice de sessões por usuário montado com {} sessões.", sessions.size());
+        } catch (RuntimeException e) {
+            logger.error("Erro ao montar o índice de sessões por usuário: {}", e.getMessage());
+        }
     }
 
-    public Session saveSession(Session session) {
-        return sessionRepository.save(session);
+    /*
+     * O ponteiro da sessão aberta é gravado com SETNX antes da sessão: se já existir, o usuário já tem
+     * uma sessão aberta e a inserção é recusada, sem janela para duas requisições simultâneas abrirem duas.
+     * Com o sweeper desligado a sessão e o ponteiro não expiram e a sessão só entra no sweeper no primeiro heartbeat.
+     * */
+    public Session insertSession(Session session) {
+        if (session.getId() == null) session.setId(UUID.randomUUID().toString());
+        session.setInitialDatetime(session.getInitialDatetime().truncatedTo(ChronoUnit.SECONDS));
+
+        String openKey = SessionKeys.openSession(session.getFkAppUserId());
+        boolean open = session.getFinalDatetime() == null;
+        if (open && !setOpenPointerIfAbsent(session))
+            throw new DataIntegrityViolationException("Usuário já possui uma sessão aberta.");
+
+        try {
+            if (open && sweeperEnabled) session.setTimeToLive(openTtl.toSeconds());
+            Session saved = sessionRepository.save(session);
+            indexSession(saved);
+            activeUserService.recordStart(saved);
+            sessionStreamService.publishStart(saved);
+            if (open) {
+                if (sweeperEnabled) stringRedisTemplate.opsForZSet().add(SessionKeys.HEARTBEATS, saved.getId(), System.currentTimeMillis());
+                presenceService.markOnline(saved.getFkAppUserId());
+            }
+            return saved;
+        } catch (RuntimeException e) {
+            if (open) stringRedisTemplate.delete(openKey);
+            throw e;
+        }
     }
 
     public List<Session> getSessions() {
@@ -35,32 +167,290 @@ public class SessionService {
         return !sessions.isEmpty() ? sessions : null;
     }
 
+    /*
+     * Página de sessões por cursor. Sem usuário, percorre o set de todas as sessões com SSCAN: o cursor é o do
+     * próprio Redis, cada página custa no máximo ~limit ids e, como no SCAN, uma sessão pode aparecer em duas páginas.
+     * Com usuário, percorre o sorted set dele da mais recente para a mais antiga e o cursor é o início e o id da última sessão.
+     * O filtro de sessões abertas/finalizadas é aplicado depois da leitura, então uma página pode vir com menos de limit
+     * itens (ou vazia) e ainda ter próxima.
+     *
+     * finished: null para todas, true para finalizadas, false para abertas.
+     * */
+    public CursorPage<Session> getSessionsPage(Long fkAppUserId, Boolean finished, String after, int limit) {
+        CursorPage<Session> page = fkAppUserId != null
+                ? getUserSessionsPage(fkAppUserId, after, limit)
+                : scanSessionsPage(after, limit);
+
+        if (finished == null) return page;
+        return new CursorPage<>(page.items().stream()
+                .filter(session -> finished == (session.getFinalDatetime() != null))
+                .toList(), page.nextCursor());
+    }
+
+    /**
+     * @return todas as sessões do filtro, lidas página a página conforme o stream é consumido
+     */
+    public Stream<Session> streamSessions(Long fkAppUserId, Boolean finished) {
+        return Stream.iterate(getSessionsPage(fkAppUserId, finished, null, EXPORT_PAGE_SIZE),
+                        Objects::nonNull,
+                        page -> page.nextCursor() != null ? getSessionsPage(fkAppUserId, finished, page.nextCursor(), EXPORT_PAGE_SIZE) : null)
+                .flatMap(page -> page.items().stream());
+    }
+
     public Session getUnfinishedSessionByFkAppUserById(long fkAppUserId) {
-        List<Session> sessions = sessionRepository.findSessionByFkAppUserIdAndFinalDatetimeIsNull(fkAppUserId);
+        String sessionId = stringRedisTemplate.opsForValue().get(SessionKeys.openSession(fkAppUserId));
+        if (sessionId == null) return null;
+        return sessionRepository.findById(sessionId).orElse(null);
+    }
 
-        return sessions.stream()
-                .filter(session -> session.getFkAppUserId() == fkAppUserId && session.getFinalDatetime() == null)
-                .sorted((s1, s2) -> s2.getInitialDatetime().compareTo(s1.getInitialDatetime()))
-                .findFirst()
-                .orElse(null);
+    /**
+     * @return sessões do usuário, da mais recente para a mais antiga
+     */
+    public List<Session> getSessionsByFkAppUserId(long fkAppUserId, int limit) {
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(SessionKeys.userSessions(fkAppUserId), 0, limit - 1L);
+        List<Session> sessions = findAllInOrder(ids);
+        return !sessions.isEmpty() ? sessions : null;
     }
 
     public List<Session> getFinishedSessionsByFkAppUserId(long fkAppUserId) {
-        List<Session> sessions = sessionRepository.findSessionByFkAppUserIdAndFinalDatetimeIsNotNull(fkAppUserId);
+        Set<String> ids = stringRedisTemplate.opsForZSet().range(SessionKeys.userSessions(fkAppUserId), 0, -1);
+        List<Session> sessions = findAllInOrder(ids).stream()
+                .filter(session -> session.getFinalDatetime() != null)
+                .toList();
         return !sessions.isEmpty() ? sessions : null;
     }
 
     public boolean deleteSession(String id) {
-        if (sessionRepository.findById(id).isEmpty())
-            throw new EntityNotFoundException("Sem sessões para o ID enviado.");
+        Session session = sessionRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Sem sessões para o ID enviado."));
+
         sessionRepository.deleteById(id);
+        stringRedisTemplate.opsForZSet().remove(SessionKeys.userSessions(session.getFkAppUserId()), id);
+        releaseOpenSession(session);
+        stringRedisTemplate.opsForZSet().remove(SessionKeys.HEARTBEATS, id);
+        if (session.getFinalDatetime() != null) sessionTimeService.removeSession(session);
+
         return sessionRepository.findById(id).isEmpty();
     }
 
-    public Session finishSession(String sessionId) {
-        return sessionRepository.findById(sessionId).map(existingSession -> {
-            existingSession.setFinalDatetime(LocalDateTime.now());
-            return sessionRepository.save(existingSession);
-        }).orElseThrow(() -> new EntityNotFoundException("Sessão não encontrada com ID: " + sessionId));
+    /*
+     * Uma chamada só ao Redis: o script lê o ponteiro, grava o horário final direto nos bytes do SessionCodec,
+     * soma os contadores de tempo, limpa ponteiro e heartbeat e publica o FINISH no stream, tudo atomicamente. Em duas chamadas simultâneas,
+     * a segunda já não encontra o ponteiro.
+     * */
+    public Session finishOpenSession(long fkAppUserId) {
+        long finalEpochSecond = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        return stringRedisTemplate.execute(FINISH_SESSION, RedisSerializer.string(), SessionCodec.INSTANCE,
+                List.of(SessionKeys.openSession(fkAppUserId), SessionKeys.HEARTBEATS, SessionKeys.userTime(fkAppUserId),
+                        SessionKeys.PRESENCE, SessionKeys.EVENTS_STREAM),
+                String.valueOf(finalEpochSecond), SessionKeys.sessionHash(""), String.valueOf(fkAppUserId),
+                sessionStreamService.scriptPublishFlag());
+    }
+
+    /*
+     * Heartbeat do app: registra o horário no sorted set de heartbeats e na presença e renova o TTL da sessão
+     * e do ponteiro, sem ler nem regravar a sessão. Os dois expiram juntos, então um app que sumiu não deixa o usuário
+     * impedido de abrir outra sessão. Com o sweeper desligado não há TTL para renovar, mas o heartbeat é registrado
+     * do mesmo jeito, então ao ligar o sweeper as sessões são finalizadas no último heartbeat de verdade.
+     * */
+    public boolean heartbeat(long fkAppUserId) {
+        String openKey = SessionKeys.openSession(fkAppUserId);
+        String sessionId = stringRedisTemplate.opsForValue().get(openKey);
+        if (sessionId == null) return false;
+
+        String sessionKey = SessionKeys.sessionHash(sessionId);
+        boolean exists = sweeperEnabled
+                ? Boolean.TRUE.equals(stringRedisTemplate.expire(sessionKey, openTtl))
+                : Boolean.TRUE.equals(stringRedisTemplate.hasKey(sessionKey));
+        if (!exists) return false;
+        if (sweeperEnabled) stringRedisTemplate.expire(openKey, openTtl);
+        stringRedisTemplate.opsForZSet().add(SessionKeys.HEARTBEATS, sessionId, System.currentTimeMillis());
+        presenceService.markOnline(fkAppUserId);
+        return true;
+    }
+
+    /*
+     * Finaliza as sessões abertas sem heartbeat há mais de idle-timeout, com o horário final igual ao último heartbeat.
+     * O ponteiro da sessão aberta é liberado com compare-and-delete antes de finalizar: se o app finalizou a sessão
+     * ao mesmo tempo, só um dos dois consegue e o tempo não é contado duas vezes.
+     * Sessões cuja chave já expirou (sweeper parado por mais que open-ttl) só são retiradas dos índices.
+     * Fica desligado (delfis.session.sweeper.enabled) enquanto o app não manda heartbeats: sem eles, toda sessão
+     * seria finalizada depois de idle-timeout com duração zero.
+     * */
+    @Scheduled(initialDelayString = "${delfis.session.sweep-interval-ms:60000}",
+            fixedDelayString = "${delfis.session.sweep-interval-ms:60000}")
+    public void closeAbandonedSessions() {
+        if (!sweeperEnabled) return;
+        long cutoff = System.currentTimeMillis() - idleTimeout.toMillis();
+        int closed = 0;
+
+        try {
+            Set<ZSetOperations.TypedTuple<String>> stale;
+            do {
+                stale = stringRedisTemplate.opsForZSet().rangeByScoreWithScores(SessionKeys.HEARTBEATS, 0, cutoff, 0, sweepBatchSize);
+                if (stale == null) break;
+
+                for (ZSetOperations.TypedTuple<String> entry : stale) {
+                    String sessionId = entry.getValue();
+                    Optional<Session> session = sessionRepository.findById(sessionId);
+                    if (session.isEmpty()) {
+                        sessionRepository.deleteById(sessionId);
+                    } else if (session.get().getFinalDatetime() == null && releaseOpenSession(session.get())) {
+                        close(session.get(), LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getScore().longValue()), ZoneId.systemDefault()));
+                        closed++;
+                    }
+                    stringRedisTemplate.opsForZSet().remove(SessionKeys.HEARTBEATS, sessionId);
+                }
+            } while (stale.size() == sweepBatchSize);
+        } catch (RuntimeException e) {
+            logger.error("Erro ao finalizar sessões abandonadas: {}", e.getMessage());
+        }
+
+        if (closed > 0) logger.info("{} sessões abandonadas finalizadas.", closed);
+    }
+
+    /*
+     * Agenda a remoção do Redis de sessões finalizadas que já foram gravadas no histórico do Mongo.
+     * */
+    public void scheduleEviction(Collection<String> sessionIds, Instant evictAt) {
+        if (sessionIds.isEmpty()) return;
+        Set<ZSetOperations.TypedTuple<String>> tuples = sessionIds.stream()
+                .map(id -> ZSetOperations.TypedTuple.of(id, (double) evictAt.toEpochMilli()))
+                .collect(Collectors.toSet());
+        stringRedisTemplate.opsForZSet().add(SessionKeys.EVICTIONS, tuples);
+    }
+
+    /*
+     * Remove as sessões cujo prazo de remoção venceu. Só a sessão e o índice por usuário saem: os contadores de tempo
+     * continuam com o tempo delas, e o histórico passa a ser o único lugar com a sessão.
+     * Uma sessão que não está finalizada (não deveria estar agendada) não é removida.
+     *
+     * @return quantidade de sessões removidas
+     * */
+    public int evictHistoricSessions(int batchSize) {
+        int evicted = 0;
+        Set<String> due;
+        do {
+            due = stringRedisTemplate.opsForZSet().rangeByScore(SessionKeys.EVICTIONS, 0, System.currentTimeMillis(), 0, batchSize);
+            if (due == null || due.isEmpty()) break;
+
+            for (Session session : findAllInOrder(due)) {
+                if (session.getFinalDatetime() == null) continue;
+                sessionRepository.deleteById(session.getId());
+                stringRedisTemplate.opsForZSet().remove(SessionKeys.userSessions(session.getFkAppUserId()), session.getId());
+                evicted++;
+            }
+            stringRedisTemplate.opsForZSet().remove(SessionKeys.EVICTIONS, due.toArray());
+        } while (due.size() == batchSize);
+        return evicted;
+    }
+
+    /*
+     * Grava o horário final, tira o TTL (a sessão finalizada fica guardada até o histórico removê-la),
+     * soma o tempo nos contadores e publica o FINISH.
+     * Os horários são truncados em segundos, a precisão do SessionCodec, para os contadores baterem com o que fica gravado.
+     * */
+    private Session close(Session session, LocalDateTime finalDatetime) {
+        finalDatetime = finalDatetime.truncatedTo(ChronoUnit.SECONDS);
+        session.setFinalDatetime(finalDatetime.isBefore(session.getInitialDatetime()) ? session.getInitialDatetime() : finalDatetime);
+        session.setTimeToLive(null);
+        Session saved = sessionRepository.save(session);
+        sessionTimeService.addSession(saved);
+        sessionStreamService.publishFinish(saved);
+        return saved;
+    }
+
+    /**
+     * @return true se o ponteiro da sessão aberta foi gravado, false se o usuário já tinha um
+     */
+    private boolean setOpenPointerIfAbsent(Session session) {
+        String openKey = SessionKeys.openSession(session.getFkAppUserId());
+        Boolean set = sweeperEnabled
+                ? stringRedisTemplate.opsForValue().setIfAbsent(openKey, session.getId(), openTtl)
+                : stringRedisTemplate.opsForValue().setIfAbsent(openKey, session.getId());
+        return Boolean.TRUE.equals(set);
+    }
+
+    private boolean releaseOpenSession(Session session) {
+        Long released = stringRedisTemplate.execute(RELEASE_OPEN_SESSION,
+                List.of(SessionKeys.openSession(session.getFkAppUserId())), session.getId());
+        return released != null && released > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CursorPage<Session> scanSessionsPage(String after, int limit) {
+        String cursor = after != null ? after : "0";
+        if (!cursor.matches("\\d+")) throw new IllegalArgumentException("Cursor inválido: " + cursor);
+
+        List<Object> result = stringRedisTemplate.execute(SCAN_SESSION_IDS, List.of(SessionKeys.ALL_SESSIONS), cursor, String.valueOf(limit));
+        String nextCursor = (String) result.get(0);
+        List<String> ids = (List<String>) result.get(1);
+
+        return new CursorPage<>(findAllInOrder(new LinkedHashSet<>(ids)), "0".equals(nextCursor) ? null : nextCursor);
+    }
+
+    /*
+     * O cursor é "score:id" da última sessão da página. Sessões do mesmo usuário iniciadas no mesmo segundo têm o mesmo
+     * score, então a próxima página começa pelas empatadas com id menor (o ZREVRANGEBYSCORE ordena os empates pelo
+     * membro, do maior para o menor) e só depois segue com os scores estritamente menores.
+     * */
+    private CursorPage<Session> getUserSessionsPage(long fkAppUserId, String after, int limit) {
+        String key = SessionKeys.userSessions(fkAppUserId);
+        ZSetOperations<String, String> zSet = stringRedisTemplate.opsForZSet();
+        List<ZSetOperations.TypedTuple<String>> tuples = new ArrayList<>();
+        double max = Double.POSITIVE_INFINITY;
+
+        if (after != null) {
+            int separator = after.indexOf(':');
+            long score;
+            try {
+                score = separator > 0 ? Long.parseLong(after.substring(0, separator)) : -1;
+            } catch (NumberFormatException e) {
+                score = -1;
+            }
+            if (score < 0 || separator == after.length() - 1) throw new IllegalArgumentException("Cursor inválido: " + after);
+
+            String lastId = after.substring(separator + 1);
+            Objects.requireNonNull(zSet.reverseRangeByScoreWithScores(key, score, score)).stream()
+                    .filter(tuple -> Objects.requireNonNull(tuple.getValue()).compareTo(lastId) < 0)
+                    .limit(limit + 1L)
+                    .forEach(tuples::add);
+            max = Math.nextDown((double) score);
+        }
+
+        if (tuples.size() <= limit) {
+            tuples.addAll(Objects.requireNonNull(zSet.reverseRangeByScoreWithScores(key, Double.NEGATIVE_INFINITY, max,
+                    0, limit + 1L - tuples.size())));
+        }
+
+        String nextCursor = null;
+        if (tuples.size() > limit) {
+            tuples = tuples.subList(0, limit);
+            ZSetOperations.TypedTuple<String> last = tuples.get(limit - 1);
+            nextCursor = last.getScore().longValue() + ":" + last.getValue();
+        }
+
+        Set<String> ids = tuples.stream().map(ZSetOperations.TypedTuple::getValue).collect(Collectors.toCollection(LinkedHashSet::new));
+        return new CursorPage<>(findAllInOrder(ids), nextCursor);
+    }
+
+    private void indexSession(Session session) {
+        stringRedisTemplate.opsForZSet().add(SessionKeys.userSessions(session.getFkAppUserId()), session.getId(),
+                SessionKeys.score(session.getInitialDatetime()));
+    }
+
+    /*
+     * Busca as sessões pelos ids mantendo a ordem do sorted set. Ids sem sessão (expiradas ou removidas
+     * fora da API) são ignorados.
+     * */
+    private List<Session> findAllInOrder(Set<String> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+
+        Map<String, Session> byId = new HashMap<>();
+        sessionRepository.findAllById(ids).forEach(session -> byId.put(session.getId(), session));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,224 @@
+/*
+ * Classe SessionStreamService
+ * Publica os inícios e fins de sessão num Redis Stream e entrega esses eventos ao grupo de consumidores do histórico
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.repository.SessionRepository;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/*
+ * Cada evento é uma entrada do stream session:events com os campos:
+ *   type         START ou FINISH
+ *   sessionId    id da sessão
+ *   fkAppUserId  id do usuário
+ *   initial      início da sessão em epoch seconds
+ *   final        fim da sessão em epoch seconds (só no FINISH)
+ * As datas seguem o SessionCodec (LocalDateTime lido como UTC). O script finish-session.lua publica o FINISH
+ * com esses mesmos campos.
+ * O XADD não limita o tamanho do stream: as entradas só são apagadas por trimAcknowledged depois de confirmadas
+ * pelo histórico, então um consumidor parado faz o stream crescer em vez de perder eventos.
+ * */
+@Service
+public class SessionStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(SessionStreamService.class);
+    public static final String GROUP = "session-history";
+    public static final String START = "START";
+    public static final String FINISH = "FINISH";
+    private static final String BACKFILL_VERSION = "1";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private static final RedisScript<Long> TRIM_ACKNOWLEDGED =
+            RedisScript.of(new ClassPathResource("scripts/trim-session-events.lua"), Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SessionRepository sessionRepository;
+    private final boolean enabled;
+
+    public SessionStreamService(StringRedisTemplate stringRedisTemplate, SessionRepository sessionRepository,
+                                @Value("${delfis.session.history.enabled:true}") boolean enabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionRepository = sessionRepository;
+        this.enabled = enabled;
+    }
+
+    /*
+     * Cria o grupo de consumidores (e o stream, se ainda não existir) e publica uma vez os eventos das sessões
+     * que já estavam no Redis, para que elas também cheguem ao histórico. O grupo é criado antes do backfill,
+     * então nenhum evento publicado fica de fora. Se a aplicação cair no meio, o backfill roda de novo
+     * e alguns eventos são publicados duas vezes; o histórico ignora eventos repetidos da mesma sessão.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) return;
+
+        try {
+            createGroup();
+            if (BACKFILL_VERSION.equals(stringRedisTemplate.opsForValue().get(SessionKeys.HISTORY_BACKFILL))) return;
+
+            long sessions = 0;
+            List<String> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+            ScanOptions options = ScanOptions.scanOptions().count(BACKFILL_BATCH_SIZE).build();
+            try (Cursor<String> cursor = stringRedisTemplate.opsForSet().scan(SessionKeys.ALL_SESSIONS, options)) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() == BACKFILL_BATCH_SIZE) {
+                        sessions += backfillBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            sessions += backfillBatch(batch);
+
+            stringRedisTemplate.opsForValue().set(SessionKeys.HISTORY_BACKFILL, BACKFILL_VERSION);
+            logger.info("Eventos de {} sessões publicados para o histórico.", sessions);
+        } catch (RuntimeException e) {
+            logger.error("Erro ao preparar o stream de eventos de sessão: {}", e.getMessage());
+        }
+    }
+
+    public void publishStart(Session session) {
+        if (!enabled) return;
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            publishStart(connection, session);
+            return null;
+        });
+    }
+
+    public void publishFinish(Session session) {
+        if (!enabled) return;
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            publishFinish(connection, session);
+            return null;
+        });
+    }
+
+    /*
+     * Mesmo que publishStart e publishFinish, mas só enfileiram os comandos na conexão, para quem já está
+     * num MULTI ou pipeline.
+     * */
+    public void publishStart(RedisConnection connection, Session session) {
+        if (!enabled) return;
+        add(connection, event(START, session));
+    }
+
+    public void publishFinish(RedisConnection connection, Session session) {
+        if (!enabled || session.getFinalDatetime() == null) return;
+        Map<byte[], byte[]> event = event(FINISH, session);
+        event.put(bytes("final"), bytes(String.valueOf(toEpochSecond(session.getFinalDatetime()))));
+        add(connection, event);
+    }
+
+    /**
+     * @return argumento do script de finalização que liga o XADD do FINISH: "1", ou vazio se o histórico estiver desligado
+     */
+    public String scriptPublishFlag() {
+        return enabled ? "1" : "";
+    }
+
+    /**
+     * @return até count eventos para o consumidor: primeiro os que já foram entregues a ele e não foram confirmados
+     * (por exemplo, porque a gravação no histórico falhou), depois os novos
+     */
+    public List<MapRecord<String, Object, Object>> read(String consumer, int count) {
+        Consumer groupConsumer = Consumer.from(GROUP, consumer);
+        StreamReadOptions options = StreamReadOptions.empty().count(count);
+
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                .read(groupConsumer, options, StreamOffset.create(SessionKeys.EVENTS_STREAM, ReadOffset.from("0")));
+        if (records != null && !records.isEmpty()) return records;
+
+        records = stringRedisTemplate.opsForStream()
+                .read(groupConsumer, options, StreamOffset.create(SessionKeys.EVENTS_STREAM, ReadOffset.lastConsumed()));
+        return records != null ? records : List.of();
+    }
+
+    public void acknowledge(Collection<RecordId> ids) {
+        if (ids.isEmpty()) return;
+        stringRedisTemplate.opsForStream().acknowledge(SessionKeys.EVENTS_STREAM, GROUP, ids.toArray(RecordId[]::new));
+    }
+
+    /**
+     * @return quantidade de entradas apagadas do stream, só entre as já confirmadas pelo grupo do histórico
+     */
+    public long trimAcknowledged() {
+        Long trimmed = stringRedisTemplate.execute(TRIM_ACKNOWLEDGED, List.of(SessionKeys.EVENTS_STREAM), GROUP);
+        return trimmed != null ? trimmed : 0;
+    }
+
+    public static LocalDateTime fromEpochSecond(String epochSecond) {
+        return LocalDateTime.ofEpochSecond(Long.parseLong(epochSecond), 0, ZoneOffset.UTC);
+    }
+
+    private void createGroup() {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(bytes(SessionKeys.EVENTS_STREAM), GROUP, ReadOffset.from("0"), true));
+        } catch (RedisSystemException e) {
+            // BUSYGROUP: o grupo já existe
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) throw e;
+        }
+    }
+
+    private int backfillBatch(List<String> ids) {
+        if (ids.isEmpty()) return 0;
+
+        List<Session> sessions = new ArrayList<>(ids.size());
+        sessionRepository.findAllById(ids).forEach(session -> {
+            if (session.getInitialDatetime() != null) sessions.add(session);
+        });
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Session session : sessions) {
+                publishStart(connection, session);
+                publishFinish(connection, session);
+            }
+            return null;
+        });
+        return sessions.size();
+    }
+
+    private void add(RedisConnection connection, Map<byte[], byte[]> event) {
+        connection.streamCommands().xAdd(StreamRecords.newRecord().in(bytes(SessionKeys.EVENTS_STREAM)).ofMap(event));
+    }
+
+    private static Map<byte[], byte[]> event(String type, Session session) {
+        Map<byte[], byte[]> event = new LinkedHashMap<>();
+        event.put(bytes("type"), bytes(type));
+        event.put(bytes("sessionId"), bytes(session.getId()));
+        event.put(bytes("fkAppUserId"), bytes(String.valueOf(session.getFkAppUserId())));
+        event.put(bytes("initial"), bytes(String.valueOf(toEpochSecond(session.getInitialDatetime()))));
+        return event;
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Classe SessionTimeService
+ * Mantém no Redis os contadores de tempo de sessão de cada usuário (total e por dia)
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.model.SessionTimePoint;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+public class SessionTimeService {
+    public static final int MAX_SERIES_DAYS = 731;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public SessionTimeService(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /*
+     * Soma a duração de uma sessão finalizada no total do usuário e nos dias em que ela aconteceu.
+     * Os HINCRBY vão num MULTI/EXEC, então quem lê nunca vê o total sem os dias ou o contrário.
+     * */
+    public void addSession(Session session) {
+        increment(session, 1);
+    }
+
+    /*
+     * Mesmo que addSession, mas só enfileira os HINCRBY na conexão, para quem já está num MULTI ou pipeline.
+     * */
+    public void addSession(RedisConnection connection, Session session) {
+        byte[] key = SessionKeys.userTime(session.getFkAppUserId()).getBytes(StandardCharsets.UTF_8);
+        secondsByField(session).forEach((field, seconds) ->
+                connection.hashCommands().hIncrBy(key, field.getBytes(StandardCharsets.UTF_8), seconds));
+    }
+
+    /*
+     * Desfaz o addSession de uma sessão finalizada que foi removida.
+     * */
+    public void removeSession(Session session) {
+        increment(session, -1);
+    }
+
+    /*
+     * Recalcula do zero os contadores dos usuários a partir das sessões finalizadas.
+     * Usado no backfill: sobrescreve os hashes em vez de incrementar, então pode rodar mais de uma vez.
+     * */
+    public void rebuild(Collection<Session> finishedSessions) {
+        Map<Long, List<Session>> byUser = finishedSessions.stream()
+                .collect(Collectors.groupingBy(Session::getFkAppUserId));
+
+        byUser.forEach((fkAppUserId, sessions) -> {
+            Map<String, String> fields = new HashMap<>();
+            sessions.forEach(session -> secondsByField(session)
+                    .forEach((field, seconds) -> fields.merge(field, String.valueOf(seconds),
+                            (a, b) -> String.valueOf(Long.parseLong(a) + Long.parseLong(b)))));
+
+            String key = SessionKeys.userTime(fkAppUserId);
+            executeInTransaction(operations -> {
+                operations.delete(key);
+                operations.opsForHash().putAll(key, fields);
+            });
+        });
+    }
+
+    /**
+     * @return tempo total das sessões finalizadas do usuário, em segundos, ou null se ele não tiver nenhuma
+     */
+    public Long getTotalSeconds(long fkAppUserId) {
+        Object total = stringRedisTemplate.opsForHash().get(SessionKeys.userTime(fkAppUserId), SessionKeys.TOTAL_FIELD);
+        return total != null ? Long.parseLong(total.toString()) : null;
+    }
+
+    /**
+     * @return um ponto por dia (ou por semana, começando na segunda) entre from e to, inclusive, com zero nos períodos sem sessão
+     */
+    public List<SessionTimePoint> getTimeSeries(long fkAppUserId, LocalDate from, LocalDate to, boolean weekly) {
+        if (weekly) from = from.with(DayOfWeek.MONDAY);
+        if (from.isAfter(to)) throw new IllegalArgumentException("A data inicial deve ser anterior à final.");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_SERIES_DAYS)
+            throw new IllegalArgumentException("O período deve ter no máximo " + MAX_SERIES_DAYS + " dias.");
+
+        List<LocalDate> days = from.datesUntil(to.plusDays(1)).toList();
+        List<Object> fields = days.stream().map(day -> (Object) SessionKeys.dayField(day.toEpochDay())).toList();
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(SessionKeys.userTime(fkAppUserId), fields);
+
+        Map<LocalDate, Long> secondsByPeriod = new LinkedHashMap<>();
+        for (int i = 0; i < days.size(); i++) {
+            LocalDate period = weekly ? days.get(i).with(DayOfWeek.MONDAY) : days.get(i);
+            Object value = values.get(i);
+            secondsByPeriod.merge(period, value != null ? Long.parseLong(value.toString()) : 0L, Long::sum);
+        }
+
+        return secondsByPeriod.entrySet().stream()
+                .map(entry -> new SessionTimePoint(entry.getKey(), entry.getValue() / 60.0))
+                .toList();
+    }
+
+    private void increment(Session session, int sign) {
+        Map<String, Long> secondsByField = secondsByField(session);
+        if (secondsByField.isEmpty()) return;
+
+        String key = SessionKeys.userTime(session.getFkAppUserId());
+        executeInTransaction(operations -> secondsByField
+                .forEach((field, seconds) -> operations.opsForHash().increment(key, field, sign * seconds)));
+    }
+
+    /*
+     * Divide a sessão nos dias em que ela aconteceu: uma sessão das 23h às 1h soma 1h em cada dia.
+     * O total usa a duração inteira da sessão, igual ao cálculo que era feito antes no controller.
+     * */
+    private static Map<String, Long> secondsByField(Session session) {
+        LocalDateTime start = session.getInitialDatetime();
+        LocalDateTime end = session.getFinalDatetime();
+        if (start == null || end == null || !end.isAfter(start)) return Map.of();
+
+        Map<String, Long> secondsByField = new LinkedHashMap<>();
+        secondsByField.put(SessionKeys.TOTAL_FIELD, Duration.between(start, end).getSeconds());
+
+        LocalDateTime cursor = start;
+        while (cursor.isBefore(end)) {
+            LocalDateTime nextMidnight = cursor.toLocalDate().plusDays(1).atStartOfDay();
+            LocalDateTime partEnd = nextMidnight.isBefore(end) ? nextMidnight : end;
+            secondsByField.merge(SessionKeys.dayField(cursor.toLocalDate().toEpochDay()),
+                    Duration.between(cursor, partEnd).getSeconds(), Long::sum);
+            cursor = partEnd;
+        }
+        return secondsByField;
+    }
+
+    private void executeInTransaction(Consumer<RedisOperations<String, String>> commands) {
+        stringRedisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                stringOperations.multi();
+                commands.accept(stringOperations);
+                return stringOperations.exec();
+            }
+        });
+    }
+}
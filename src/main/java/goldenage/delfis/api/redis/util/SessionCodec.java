@@ -0,0 +1,136 @@
+/*
+ * Classe SessionCodec
+ * Codificação binária e versionada da entidade Session, usada pelo RedisTemplate e pelo SessionRepository
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.util;
+
+import goldenage.delfis.api.redis.model.Session;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+/*
+ * Formato da versão 1, big-endian, 26 bytes fixos + id:
+ *   [0]      versão
+ *   [1]      flags (bit 0: sessão finalizada)
+ *   [2..9]   fkAppUserId
+ *   [10..17] initialDatetime em epoch seconds
+ *   [18..25] finalDatetime em epoch seconds (0 se a sessão está aberta)
+ *   [26..]   id em UTF-8, até o fim
+ * As datas são LocalDateTime sem fuso: o epoch é calculado como se fossem UTC, então ida e volta não mudam o horário.
+ * Os campos de tamanho fixo vêm antes do id para que scripts Lua consigam ler e alterar as datas por offset
+ * (scripts/finish-session.lua depende desses offsets).
+ * Uma versão nova deve continuar lendo as anteriores.
+ * */
+public final class SessionCodec implements RedisSerializer<Session> {
+    public static final byte VERSION = 1;
+    public static final String RAW_FIELD = "_raw";
+    public static final int FLAGS_OFFSET = 1;
+    public static final byte FINISHED_FLAG = 1;
+
+    private static final int HEADER_SIZE = 26;
+
+    public static final SessionCodec INSTANCE = new SessionCodec();
+
+    @Override
+    public byte[] serialize(Session session) throws SerializationException {
+        return session != null ? encode(session) : null;
+    }
+
+    @Override
+    public Session deserialize(byte[] bytes) throws SerializationException {
+        return bytes != null && bytes.length > 0 ? decode(bytes) : null;
+    }
+
+    public static byte[] encode(Session session) {
+        byte[] id = session.getId() != null ? session.getId().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        LocalDateTime finalDatetime = session.getFinalDatetime();
+
+        return ByteBuffer.allocate(HEADER_SIZE + id.length)
+                .put(VERSION)
+                .put(finalDatetime != null ? FINISHED_FLAG : 0)
+                .putLong(session.getFkAppUserId())
+                .putLong(toEpochSecond(session.getInitialDatetime()))
+                .putLong(finalDatetime != null ? toEpochSecond(finalDatetime) : 0L)
+                .put(id)
+                .array();
+    }
+
+    public static Session decode(byte[] bytes) {
+        if (bytes.length < HEADER_SIZE || bytes[0] != VERSION)
+            throw new SerializationException("Sessão em formato desconhecido: versão " + (bytes.length > 0 ? bytes[0] : "vazia"));
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(FLAGS_OFFSET);
+        boolean finished = (buffer.get() & FINISHED_FLAG) != 0;
+        long fkAppUserId = buffer.getLong();
+        LocalDateTime initialDatetime = fromEpochSecond(buffer.getLong());
+        long finalEpochSecond = buffer.getLong();
+        String id = bytes.length > HEADER_SIZE ? new String(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, StandardCharsets.UTF_8) : null;
+
+        return new Session(id, fkAppUserId, initialDatetime, finished ? fromEpochSecond(finalEpochSecond) : null, null);
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /*
+     * Grava a sessão inteira no campo _raw do hash, no lugar de um campo por propriedade.
+     * */
+    @WritingConverter
+    public enum SessionToBytesConverter implements Converter<Session, byte[]> {
+        INSTANCE;
+
+        @Override
+        public byte[] convert(Session session) {
+            return encode(session);
+        }
+    }
+
+    /*
+     * Lê o hash inteiro: usa o _raw quando existe e, para sessões gravadas antes do codec,
+     * monta a sessão a partir dos campos antigos (datas em ISO-8601).
+     * */
+    @ReadingConverter
+    public enum HashToSessionConverter implements Converter<Map<String, byte[]>, Session> {
+        INSTANCE;
+
+        @Override
+        public Session convert(Map<String, byte[]> hash) {
+            byte[] raw = hash.get(RAW_FIELD);
+            if (raw != null) return decode(raw);
+
+            return new Session(
+                    legacyField(hash, "id"),
+                    Long.parseLong(legacyField(hash, "fkAppUserId")),
+                    parseLegacyDatetime(legacyField(hash, "initialDatetime")),
+                    parseLegacyDatetime(legacyField(hash, "finalDatetime")),
+                    null);
+        }
+
+        private static String legacyField(Map<String, byte[]> hash, String field) {
+            byte[] value = hash.get(field);
+            return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+        }
+
+        private static LocalDateTime parseLegacyDatetime(String value) {
+            return value != null ? LocalDateTime.parse(value) : null;
+        }
+    }
+}
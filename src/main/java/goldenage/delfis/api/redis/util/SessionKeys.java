@@ -0,0 +1,83 @@
+/*
+ * Classe SessionKeys
+ * Nomes das chaves do Redis usadas para indexar as sessões
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+public final class SessionKeys {
+    /* Set com os ids de todas as sessões, mantido pelo SessionRepository (@RedisHash("Session")) */
+    public static final String ALL_SESSIONS = "Session";
+    /* Marca que o índice por usuário já foi montado a partir das sessões existentes */
+    public static final String INDEX_VERSION = "session:index:version";
+    public static final String TOTAL_FIELD = "total";
+    /* Sorted set com os usuários online, com score = último heartbeat em epoch millis */
+    public static final String PRESENCE = "presence:online";
+    /* Stream com os eventos de início e fim de sessão, consumido pelo histórico no Mongo */
+    public static final String EVENTS_STREAM = "session:events";
+    /* Sorted set com as sessões finalizadas a remover do Redis, com score = horário da remoção em epoch millis */
+    public static final String EVICTIONS = "session:evict";
+    /* Marca que as sessões que já existiam foram publicadas no stream de eventos */
+    public static final String HISTORY_BACKFILL = "session:history:backfill";
+    /* Marca que os HyperLogLogs de usuários ativos já foram preenchidos a partir das sessões existentes */
+    public static final String ACTIVE_USERS_BACKFILL = "session:active:backfill";
+    /* Sorted set com as sessões abertas, com score = último heartbeat em epoch millis */
+    public static final String HEARTBEATS = "session:heartbeat";
+
+    private SessionKeys() {
+    }
+
+    /**
+     * @return chave do hash da sessão gravado pelo SessionRepository (@RedisHash("Session"))
+     */
+    public static String sessionHash(String sessionId) {
+        return "Session:" + sessionId;
+    }
+
+    /**
+     * @return sorted set com os ids das sessões do usuário, com score = início da sessão em epoch millis
+     */
+    public static String userSessions(long fkAppUserId) {
+        return "session:user:" + fkAppUserId;
+    }
+
+    /**
+     * @return chave com o id da sessão aberta do usuário; só existe enquanto houver uma
+     */
+    public static String openSession(long fkAppUserId) {
+        return "session:open:" + fkAppUserId;
+    }
+
+    /**
+     * @return hash com o tempo de sessão do usuário em segundos: campo "total" e um campo "d:{epochDay}" por dia
+     */
+    public static String userTime(long fkAppUserId) {
+        return "session:time:" + fkAppUserId;
+    }
+
+    /**
+     * @return campo do hash de tempo com o total de um dia
+     */
+    public static String dayField(long epochDay) {
+        return "d:" + epochDay;
+    }
+
+    /**
+     * @return HyperLogLog com os usuários que iniciaram sessão no dia
+     */
+    public static String activeUsers(long epochDay) {
+        return "session:active:" + epochDay;
+    }
+
+    /**
+     * @return score de uma sessão no sorted set do usuário
+     */
+    public static double score(LocalDateTime initialDatetime) {
+        return initialDatetime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,61 @@
+-- Finaliza a sessão aberta de um usuário numa única chamada (ver SessionService.finishOpenSession).
+-- KEYS[1]: ponteiro da sessão aberta (session:open:{usuário})
+-- KEYS[2]: sorted set de heartbeats (session:heartbeat)
+-- KEYS[3]: hash de tempo do usuário (session:time:{usuário})
+-- KEYS[4]: sorted set de presença (presence:online)
+-- KEYS[5]: stream de eventos de sessão (session:events)
+-- ARGV[1]: horário final em epoch seconds, no mesmo formato do SessionCodec (LocalDateTime lido como UTC)
+-- ARGV[2]: prefixo das chaves das sessões ("Session:")
+-- ARGV[3]: id do usuário, que sai da presença ao finalizar a sessão
+-- ARGV[4]: "1" para publicar o FINISH no stream, ou vazio para não publicar (histórico desligado)
+-- Retorna os bytes da sessão finalizada no formato do SessionCodec, ou false se não houver sessão aberta.
+-- A chave da sessão vem do ponteiro e não de KEYS, então o script não funciona em Redis Cluster.
+
+local id = redis.call('GET', KEYS[1])
+if not id then return false end
+
+local sessionKey = ARGV[2] .. id
+local raw = redis.call('HGET', sessionKey, '_raw')
+if not raw then
+    -- A sessão expirou antes do ponteiro: só limpa o que sobrou
+    redis.call('DEL', KEYS[1])
+    redis.call('ZREM', KEYS[2], id)
+    return false
+end
+if string.byte(raw, 1) ~= 1 then
+    return redis.error_reply('Sessão em formato desconhecido: versão ' .. string.byte(raw, 1))
+end
+
+local flags = string.byte(raw, 2)
+redis.call('DEL', KEYS[1])
+redis.call('ZREM', KEYS[2], id)
+redis.call('ZREM', KEYS[4], ARGV[3])
+if flags % 2 == 1 then return raw end
+
+local startSec = struct.unpack('>i8', raw, 11)
+local finalSec = math.max(tonumber(ARGV[1]), startSec)
+local finished = string.sub(raw, 1, 1) .. string.char(flags + 1) .. string.sub(raw, 3, 18)
+        .. struct.pack('>i8', finalSec) .. string.sub(raw, 27)
+
+redis.call('HSET', sessionKey, '_raw', finished)
+redis.call('PERSIST', sessionKey)
+
+-- Mesmo cálculo do SessionTimeService: total e um campo por dia, dividindo a sessão na meia-noite
+if finalSec > startSec then
+    redis.call('HINCRBY', KEYS[3], 'total', finalSec - startSec)
+    local cursor = startSec
+    while cursor < finalSec do
+        local day = math.floor(cursor / 86400)
+        local partEnd = math.min((day + 1) * 86400, finalSec)
+        redis.call('HINCRBY', KEYS[3], string.format('d:%d', day), partEnd - cursor)
+        cursor = partEnd
+    end
+end
+
+-- Mesmos campos do SessionStreamService.publishFinish
+if ARGV[4] ~= '' then
+    redis.call('XADD', KEYS[5], '*', 'type', 'FINISH', 'sessionId', id,
+            'fkAppUserId', ARGV[3], 'initial', string.format('%d', startSec), 'final', string.format('%d', finalSec))
+end
+
+return finished
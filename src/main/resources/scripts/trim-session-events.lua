@@ -0,0 +1,21 @@
+-- Apaga do stream de eventos de sessão só as entradas que o grupo do histórico já confirmou (ver SessionStreamService.trimAcknowledged).
+-- KEYS[1]: stream de eventos de sessão (session:events)
+-- ARGV[1]: grupo de consumidores do histórico
+-- Tudo antes da entrada pendente mais antiga já foi confirmado; sem pendentes, tudo até o last-delivered-id do grupo.
+-- Entradas ainda não entregues ficam depois do last-delivered-id, então nunca são apagadas.
+-- MINID apaga só as entradas menores que o id informado e, com '~', pode apagar menos (nunca mais).
+-- Retorna a quantidade de entradas apagadas. Precisa do Redis 6.2+ (XTRIM MINID).
+
+local pending = redis.call('XPENDING', KEYS[1], ARGV[1])
+if pending[1] > 0 then
+    return redis.call('XTRIM', KEYS[1], 'MINID', '~', pending[2])
+end
+
+for _, group in ipairs(redis.call('XINFO', 'GROUPS', KEYS[1])) do
+    local fields = {}
+    for i = 1, #group, 2 do fields[group[i]] = group[i + 1] end
+    if fields['name'] == ARGV[1] then
+        return redis.call('XTRIM', KEYS[1], 'MINID', '~', fields['last-delivered-id'])
+    end
+end
+return 0
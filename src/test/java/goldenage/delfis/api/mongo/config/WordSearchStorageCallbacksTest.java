@@ -0,0 +1,93 @@
+/*
+ * Classe WordSearchStorageCallbacksTest
+ * Testes dos modos de armazenamento do grid da entidade WordSearch, gravando e lendo pelo converter do Mongo
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.config;
+
+import goldenage.delfis.api.mongo.model.LargeWordSearchGenerator;
+import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchStorageMode;
+import goldenage.delfis.api.mongo.service.WordSearchGridCache;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WordSearchStorageCallbacksTest {
+    private static final String COLLECTION = "wordSearch";
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WordSearchStorageMode.class)
+    void largeWordSearchKeepsPackedGridInEveryMode(WordSearchStorageMode storageMode) {
+        WordSearch large = LargeWordSearchGenerator.generate(LargeWordSearchGenerator.MIN_GRID_SIZE, List.of("JAVA", "SPRING", "MONGO"), 42L);
+        large.setId(new ObjectId().toHexString());
+
+        Document document = save(large, storageMode);
+        assertThat(document.get("packedGrid")).isNotNull();
+        assertThat(document.containsKey("grid")).isFalse();
+
+        WordSearch loaded = load(document, storageMode);
+        assertThat(loaded.getPackedGrid()).isEqualTo(large.getPackedGrid());
+        assertThat(loaded.getGrid()).isNull();
+        assertThat(loaded.getAlgorithmVersion()).isEqualTo(LargeWordSearchGenerator.ALGORITHM_VERSION);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WordSearchStorageMode.class)
+    void regularWordSearchReloadsTheSameGridInEveryMode(WordSearchStorageMode storageMode) {
+        WordSearch wordSearch = new WordSearch(10, List.of("JAVA", "SPRING", "MONGO"), 42L);
+        wordSearch.setId(new ObjectId().toHexString());
+
+        Document document = save(wordSearch, storageMode);
+        switch (storageMode) {
+            case FULL -> assertThat(document.keySet()).contains("grid").doesNotContain("packedGrid");
+            case PACKED -> assertThat(document.keySet()).contains("packedGrid").doesNotContain("grid");
+            case SEED -> assertThat(document.keySet()).doesNotContain("grid", "packedGrid");
+        }
+
+        WordSearch loaded = load(document, storageMode);
+        assertThat(loaded.getGrid()).isEqualTo(wordSearch.getGrid());
+    }
+
+    private Document save(WordSearch wordSearch, WordSearchStorageMode storageMode) {
+        Document document = new Document();
+        converter.write(wordSearch, document);
+        callbacks(storageMode).onBeforeSave(wordSearch, document, COLLECTION);
+        return document;
+    }
+
+    private WordSearch load(Document document, WordSearchStorageMode storageMode) {
+        WordSearch wordSearch = converter.read(WordSearch.class, document);
+        return callbacks(storageMode).onAfterConvert(wordSearch, document, COLLECTION);
+    }
+
+    private static WordSearchStorageCallbacks callbacks(WordSearchStorageMode storageMode) {
+        return new WordSearchStorageCallbacks(new WordSearchGridCache(10), storageMode);
+    }
+}
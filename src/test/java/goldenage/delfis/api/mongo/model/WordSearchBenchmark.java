@@ -0,0 +1,131 @@
+/*
+ * Classe WordSearchBenchmark
+ * Benchmarks JMH da geração e da verificação de respostas da entidade WordSearch
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Rodar com: mvn -Pbenchmark test-compile exec:exec
+ * O profile já passa "-prof gc", que reporta os bytes alocados por operação (gc.alloc.rate.norm).
+ * SampleTime dá os percentis de latência; Throughput, as operações por segundo.
+ * Seeds e lista de palavras são fixas para os resultados serem comparáveis entre execuções e máquinas.
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class WordSearchBenchmark {
+    private static final long SEED = 20241019L;
+    private static final String WORDS_FIXTURE = "/benchmark/word-search-words.txt";
+
+    @Param({"8", "16", "32", "64", "100"})
+    private int gridSize;
+
+    @Param({"4", "16", "64"})
+    private int wordCount;
+
+    private List<String> words;
+    private char[][] unfilledGrid;
+    private WordSearch wordSearch;
+    private String placedWord;
+    private int placedX;
+    private int placedY;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> fittingWords = new ArrayList<>();
+        for (String word : loadFixtureWords()) {
+            if (word.length() <= gridSize) fittingWords.add(word);
+        }
+        Collections.shuffle(fittingWords, new Random(SEED));
+        words = List.copyOf(fittingWords.subList(0, Math.min(wordCount, fittingWords.size())));
+
+        unfilledGrid = new char[gridSize][gridSize];
+        for (char[] row : unfilledGrid) Arrays.fill(row, '_');
+
+        wordSearch = new WordSearch(gridSize, words, SEED);
+        findPlacedWord();
+    }
+
+    @Benchmark
+    public WordSearch construct() {
+        return new WordSearch(gridSize, words, SEED);
+    }
+
+    @Benchmark
+    public char[][] generateGrid() {
+        return WordSearch.generateGrid(gridSize, words, new Random(SEED));
+    }
+
+    /*
+     * O custo de copiar o grid vazio entra na medição, mas é pequeno perto do preenchimento.
+     * */
+    @Benchmark
+    public char[][] randomFillGrid() {
+        char[][] contents = new char[gridSize][];
+        for (int i = 0; i < gridSize; i++) contents[i] = unfilledGrid[i].clone();
+        WordSearch.randomFillGrid(contents, new Random(SEED));
+        return contents;
+    }
+
+    @Benchmark
+    public void isWordCorrect(Blackhole blackhole) {
+        blackhole.consume(wordSearch.isWordCorrect(placedX, placedY, placedWord));
+        blackhole.consume(wordSearch.isWordCorrect(0, 0, "ZZZ"));
+    }
+
+    /*
+     * Procura onde a primeira palavra foi colocada para que o benchmark de verificação meça um acerto real.
+     * */
+    private void findPlacedWord() {
+        for (String word : words) {
+            for (int x = 0; x < gridSize; x++) {
+                for (int y = 0; y < gridSize; y++) {
+                    if (wordSearch.isWordCorrect(x, y, word)) {
+                        placedWord = word;
+                        placedX = x;
+                        placedY = y;
+                        return;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("Nenhuma palavra encontrada no grid gerado.");
+    }
+
+    private static List<String> loadFixtureWords() {
+        List<String> fixtureWords = new ArrayList<>();
+        try (InputStream inputStream = WordSearchBenchmark.class.getResourceAsStream(WORDS_FIXTURE);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) fixtureWords.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fixtureWords;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Classe MongoBulkInsertPipelineTest
+ * Testes da fila de bulk inserts: falhas por documento, backpressure com a fila cheia, o 503 que ela gera e a recusa no meio do lote
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import goldenage.delfis.api.mongo.model.BulkInsertResult;
+import goldenage.delfis.api.postgresql.util.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MongoBulkInsertPipelineTest {
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulkOperations = mock(BulkOperations.class);
+    private MongoBulkInsertPipeline pipeline;
+
+    private void start(int batchSize, int queueCapacity, long offerTimeoutMillis) {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Item.class))).thenReturn(bulkOperations);
+
+        pipeline = new MongoBulkInsertPipeline(mongoTemplate, mock(MongoDatabaseFactory.class), mock(ApplicationContext.class),
+                new SimpleMeterRegistry(), batchSize, 10, queueCapacity, offerTimeoutMillis);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (pipeline != null) pipeline.stop();
+    }
+
+    @Test
+    void failsOnlyTheDocumentsReportedByTheBulkWrite() {
+        start(10, 10, 1000);
+        BulkOperationException exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(exception);
+
+        Item duplicate = new Item();
+        BulkInsertResult result = pipeline.insertAll(Stream.of(new Item(), duplicate, new Item()), null);
+
+        assertThat(result.requested()).isEqualTo(3);
+        assertThat(result.inserted()).isEqualTo(2);
+        assertThat(result.failures()).containsExactly(new BulkInsertResult.Failure(duplicate.id, "E11000 duplicate key error"));
+    }
+
+    @Test
+    void rejectsWhenTheQueueStaysFullAndAnswers503() throws Exception {
+        start(1, 1, 50);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        });
+
+        // O primeiro fica preso na gravação, o segundo ocupa a única vaga da fila e o terceiro espera e desiste
+        CompletableFuture<String> first = pipeline.submit(new Item(), null);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = pipeline.submit(new Item(), null);
+
+        RejectedExecutionException rejected = catchThrowableOfType(() -> pipeline.submit(new Item(), null), RejectedExecutionException.class);
+        assertThat(rejected).isNotNull();
+        assertThat(new GlobalExceptionHandler().handleRejectedExecutionException(rejected).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+        verify(bulkOperations, times(2)).insert(any(List.class));
+    }
+
+    @Test
+    void rejectionMidStreamReturnsTheQueuedAndFailsTheRest() throws Exception {
+        start(1, 1, 50);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        });
+
+        AtomicInteger generated = new AtomicInteger();
+        AtomicReference<BulkInsertResult> result = new AtomicReference<>();
+        Thread inserting = new Thread(() -> result.set(pipeline.insertAll(IntStream.range(0, 5).mapToObj(i -> {
+            generated.incrementAndGet();
+            return new Item();
+        }), null)));
+        inserting.start();
+
+        // Só libera a gravação quando o insertAll desistiu do terceiro e está esperando os já enfileirados
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inserting.getState() != Thread.State.WAITING && System.nanoTime() < deadline) Thread.sleep(10);
+        release.countDown();
+        inserting.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(result.get().requested()).isEqualTo(5);
+        assertThat(result.get().inserted()).isEqualTo(2);
+        assertThat(result.get().failures()).hasSize(3)
+                .allSatisfy(failure -> assertThat(failure.id()).isNull());
+        // O stream tem tamanho conhecido: os dois últimos não chegam a ser gerados
+        assertThat(generated).hasValue(3);
+    }
+
+    @Test
+    void rejectsSubmissionsAfterStop() throws InterruptedException {
+        start(10, 10, 1000);
+        pipeline.stop();
+
+        assertThatThrownBy(() -> pipeline.submit(new Item(), null)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    static class Item {
+        @Id
+        String id;
+    }
+}
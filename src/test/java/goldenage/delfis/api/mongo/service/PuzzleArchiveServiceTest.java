@@ -0,0 +1,162 @@
+/*
+ * Classe PuzzleArchiveServiceTest
+ * Testes do arquivamento: o BSON original comprimido volta igual, a origem é apagada, o cache é invalidado e o último acesso é gravado com throttle
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import goldenage.delfis.api.mongo.config.WordSearchStorageCallbacks;
+import goldenage.delfis.api.mongo.model.*;
+import goldenage.delfis.api.mongo.repository.PuzzleArchiveRepository;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PuzzleArchiveServiceTest {
+    private static final String SUDOKU = "sudoku";
+    private static final String WORD_SEARCH = "wordSearch";
+
+    private MongoTemplate mongoTemplate;
+    private PuzzleArchiveRepository puzzleArchiveRepository;
+    private PuzzleCache puzzleCache;
+    private BulkOperations bulkOperations;
+    private MappingMongoConverter converter;
+    private WordSearchStorageCallbacks callbacks;
+    private PuzzleArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollectionName(Sudoku.class)).thenReturn(SUDOKU);
+        when(mongoTemplate.getCollectionName(WordSearch.class)).thenReturn(WORD_SEARCH);
+        bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PuzzleArchive.class)).thenReturn(bulkOperations);
+
+        puzzleArchiveRepository = mock(PuzzleArchiveRepository.class);
+        puzzleCache = mock(PuzzleCache.class);
+        callbacks = new WordSearchStorageCallbacks(new WordSearchGridCache(10), WordSearchStorageMode.PACKED);
+        archiveService = new PuzzleArchiveService(puzzleArchiveRepository, mongoTemplate, puzzleCache, callbacks,
+                true, Duration.ofDays(90), Duration.ofDays(1), 500, 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archivesStaleWordSearchesAndReadsThemBack() {
+        WordSearch wordSearch = new WordSearch(10, List.of("JAVA", "SPRING", "MONGO"), 42L);
+        wordSearch.setId(new ObjectId().toHexString());
+        Document stored = new Document();
+        converter.write(wordSearch, stored);
+        callbacks.onBeforeSave(wordSearch, stored, WORD_SEARCH);
+
+        MongoCollection<Document> sudokus = collection(SUDOKU, List.of());
+        MongoCollection<Document> wordSearches = collection(WORD_SEARCH, List.of(new RawBsonDocument(stored, new DocumentCodec())));
+
+        archiveService.archiveStale();
+
+        // Primeiro pelo último acesso, depois pela idade do _id dos que ainda não têm o campo
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        verify(wordSearches, times(2)).find(filter.capture(), eq(RawBsonDocument.class));
+        assertThat(filter.getAllValues()).allSatisfy(bson ->
+                assertThat(bson.toBsonDocument().toJson()).contains("\"poolStatus\": {\"$ne\": \"READY\"}"));
+        assertThat(filter.getAllValues().get(0).toBsonDocument().toJson()).contains("\"lastAccessedAt\": {\"$lt\"");
+        assertThat(filter.getAllValues().get(1).toBsonDocument().toJson())
+                .contains("\"lastAccessedAt\": null").contains("\"_id\": {\"$lt\"");
+
+        ArgumentCaptor<Object> archive = ArgumentCaptor.forClass(Object.class);
+        verify(bulkOperations).replaceOne(any(Query.class), archive.capture(), any(FindAndReplaceOptions.class));
+        verify(bulkOperations).execute();
+        verify(wordSearches).deleteMany(any(Bson.class));
+        verify(sudokus, never()).deleteMany(any(Bson.class));
+        verify(puzzleCache).evictWordSearch(wordSearch.getId());
+
+        PuzzleArchive archived = (PuzzleArchive) archive.getValue();
+        assertThat(archived.getId()).isEqualTo(wordSearch.getId());
+        assertThat(archived.getSourceCollection()).isEqualTo(WORD_SEARCH);
+        when(puzzleArchiveRepository.findByIdAndSourceCollection(wordSearch.getId(), WORD_SEARCH)).thenReturn(Optional.of(archived));
+
+        WordSearch restored = archiveService.findWordSearch(wordSearch.getId());
+        assertThat(restored.getId()).isEqualTo(wordSearch.getId());
+        assertThat(restored.getGrid()).isEqualTo(wordSearch.getGrid());
+        assertThat(restored.getWords()).isEqualTo(wordSearch.getWords());
+    }
+
+    @Test
+    void recordsAccessAtMostOncePerResolution() {
+        WordSearch wordSearch = new WordSearch(10, List.of("JAVA"));
+        wordSearch.setId(new ObjectId().toHexString());
+
+        archiveService.recordAccess(wordSearch);
+        archiveService.recordAccess(wordSearch);
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(Update.class), eq(WordSearch.class));
+        assertThat(wordSearch.getLastAccessedAt()).isAfter(LocalDateTime.now().minusMinutes(1));
+
+        wordSearch.setLastAccessedAt(LocalDateTime.now().minusDays(2));
+        archiveService.recordAccess(wordSearch);
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), any(Update.class), eq(WordSearch.class));
+    }
+
+    @Test
+    void missingArchiveReturnsNull() {
+        when(puzzleArchiveRepository.findByIdAndSourceCollection(any(), any())).thenReturn(Optional.empty());
+
+        assertThat(archiveService.findSudoku(new ObjectId().toHexString())).isNull();
+        assertThat(archiveService.findWordSearch(new ObjectId().toHexString())).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private MongoCollection<Document> collection(String name, List<RawBsonDocument> documents) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindIterable<RawBsonDocument> found = mock(FindIterable.class);
+        when(mongoTemplate.getCollection(name)).thenReturn(collection);
+        when(collection.find(any(Bson.class), eq(RawBsonDocument.class))).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.limit(anyInt())).thenReturn(found);
+        // Os documentos saem só na primeira busca, como se a primeira passada já os tivesse arquivado
+        Iterator<List<RawBsonDocument>> batches = List.of(documents).iterator();
+        when(found.into(any())).thenAnswer(invocation -> {
+            Collection<RawBsonDocument> target = invocation.getArgument(0);
+            if (batches.hasNext()) target.addAll(batches.next());
+            return target;
+        });
+        return collection;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Classe SessionHistoryServiceTest
+ * Testes da passagem do stream de eventos de sessão para o histórico: o que é gravado, confirmado, limpo e removido
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import goldenage.delfis.api.mongo.model.SessionHistory;
+import goldenage.delfis.api.redis.model.SessionTimePoint;
+import goldenage.delfis.api.redis.service.SessionService;
+import goldenage.delfis.api.redis.service.SessionStreamService;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SessionHistoryServiceTest {
+    private static final String CONSUMER = "test";
+    private static final int BATCH_SIZE = 10;
+
+    private MongoTemplate mongoTemplate;
+    private SessionStreamService sessionStreamService;
+    private SessionService sessionService;
+    private SessionHistoryService sessionHistoryService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        sessionStreamService = mock(SessionStreamService.class);
+        sessionService = mock(SessionService.class);
+        sessionHistoryService = new SessionHistoryService(mongoTemplate, sessionStreamService, sessionService,
+                true, CONSUMER, BATCH_SIZE, Duration.ofDays(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drainEvictsOnlySessionsWhoseFinishWasInserted() {
+        List<MapRecord<String, Object, Object>> records = List.of(
+                event("1-0", Map.of("type", "START", "sessionId", "a", "fkAppUserId", "7", "initial", "100")),
+                event("2-0", Map.of("type", "FINISH", "sessionId", "a", "fkAppUserId", "7", "initial", "100", "final", "160")),
+                event("3-0", Map.of("type", "FINISH", "sessionId", "b", "fkAppUserId", "7", "initial", "100")));
+        when(sessionStreamService.read(CONSUMER, BATCH_SIZE)).thenReturn(records);
+        when(mongoTemplate.insert(anyCollection(), eq(SessionHistory.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        sessionHistoryService.drain();
+
+        ArgumentCaptor<Collection<SessionHistory>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insert(inserted.capture(), eq(SessionHistory.class));
+        assertThat(inserted.getValue()).extracting(SessionHistory::getType).containsExactly("START", "FINISH");
+        assertThat(inserted.getValue()).extracting(SessionHistory::getDurationSeconds).containsExactly(null, 60L);
+
+        verify(sessionService).scheduleEviction(eq(List.of("a")), any());
+        verify(sessionStreamService).acknowledge(List.of(RecordId.of("1-0"), RecordId.of("2-0"), RecordId.of("3-0")));
+        verify(sessionStreamService).trimAcknowledged();
+    }
+
+    @Test
+    void drainKeepsEventsPendingWhenTheInsertFails() {
+        List<MapRecord<String, Object, Object>> records = List.of(
+                event("1-0", Map.of("type", "FINISH", "sessionId", "a", "fkAppUserId", "7", "initial", "100", "final", "160")));
+        when(sessionStreamService.read(CONSUMER, BATCH_SIZE)).thenReturn(records);
+        when(mongoTemplate.insert(anyCollection(), eq(SessionHistory.class))).thenThrow(new IllegalStateException("mongo fora"));
+
+        sessionHistoryService.drain();
+
+        verify(sessionService, never()).scheduleEviction(any(), any());
+        verify(sessionStreamService, never()).acknowledge(any());
+        verify(sessionStreamService, never()).trimAcknowledged();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void timeSeriesCountsEachSessionOnceAndFillsEmptyWeeks() {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        AggregateIterable<Document> result = mock(AggregateIterable.class);
+        when(mongoTemplate.getCollectionName(SessionHistory.class)).thenReturn("sessionHistory");
+        when(mongoTemplate.getCollection("sessionHistory")).thenReturn(collection);
+        when(collection.aggregate(anyList())).thenReturn(result);
+        doAnswer(invocation -> {
+            Consumer<Document> action = invocation.getArgument(0);
+            action.accept(new Document("_id", date(LocalDate.of(2026, 10, 12))).append("seconds", 5400L));
+            return null;
+        }).when(result).forEach(any());
+
+        // 14/10 é uma quarta: o período começa na segunda, 12/10.
+        List<SessionTimePoint> points = sessionHistoryService.getTimeSeries(7, LocalDate.of(2026, 10, 14), LocalDate.of(2026, 10, 26), "week");
+
+        assertThat(points).containsExactly(
+                new SessionTimePoint(LocalDate.of(2026, 10, 12), 90.0),
+                new SessionTimePoint(LocalDate.of(2026, 10, 19), 0.0),
+                new SessionTimePoint(LocalDate.of(2026, 10, 26), 0.0));
+
+        ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(collection).aggregate(pipeline.capture());
+        Document firstGroup = pipeline.getValue().get(1).get("$group", Document.class);
+        assertThat(firstGroup.get("_id")).isEqualTo("$sessionId");
+        assertThat(pipeline.getValue().get(0).get("$match", Document.class).get("type")).isEqualTo(SessionStreamService.FINISH);
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static MapRecord<String, Object, Object> event(String id, Map<Object, Object> fields) {
+        return StreamRecords.<String, Object, Object>mapBacked(fields).withStreamKey("session:events").withId(RecordId.of(id));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Classe WordSearchPoolServiceTest
+ * Testes do pool de caça-palavras: retirada atômica, reposição até a high watermark e tamanhos fora do pool
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.service;
+
+import goldenage.delfis.api.mongo.model.WordSearch;
+import goldenage.delfis.api.mongo.model.WordSearchPoolStatus;
+import goldenage.delfis.api.mongo.repository.WordSearchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WordSearchPoolServiceTest {
+    private static final String THEME = "animais";
+    private static final int LOW_WATERMARK = 2;
+    private static final int HIGH_WATERMARK = 5;
+
+    private WordSearchRepository wordSearchRepository;
+    private MongoTemplate mongoTemplate;
+    private WordSearchPoolService poolService;
+
+    @BeforeEach
+    void setUp() {
+        wordSearchRepository = mock(WordSearchRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        WordBankService wordBankService = mock(WordBankService.class);
+        when(wordBankService.getThemes()).thenReturn(List.of(THEME));
+        when(wordBankService.sampleWords(eq(THEME), anyInt(), anyInt(), any())).thenReturn(List.of("GATO", "RATO", "LEAO"));
+
+        // Executor síncrono: a reposição roda dentro do claim e o teste vê o resultado logo depois
+        poolService = new WordSearchPoolService(wordSearchRepository, wordBankService, mongoTemplate, new SimpleMeterRegistry(),
+                Runnable::run, true, Set.of(10), LOW_WATERMARK, HIGH_WATERMARK, Duration.ofDays(7));
+    }
+
+    @Test
+    void claimMarksAReadyEntryAsServedAtomically() {
+        WordSearch ready = new WordSearch(10, List.of("GATO"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(WordSearch.class)))
+                .thenReturn(ready);
+        when(wordSearchRepository.countByGridSizeAndThemeAndPoolStatus(10, THEME, WordSearchPoolStatus.READY)).thenReturn((long) HIGH_WATERMARK);
+        poolService.refillAll();
+
+        assertThat(poolService.claim(10, THEME)).isSameAs(ready);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(WordSearch.class));
+        assertThat(query.getValue().getQueryObject())
+                .isEqualTo(new Document("poolStatus", WordSearchPoolStatus.READY).append("gridSize", 10).append("theme", THEME));
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class).get("poolStatus")).isEqualTo(WordSearchPoolStatus.SERVED);
+        assertThat(update.getValue().getUpdateObject().get("$unset", Document.class)).containsKey("poolExpiresAt");
+
+        // O pool continua acima da low watermark, então não há reposição
+        verify(wordSearchRepository, never()).insert(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void missRefillsThePoolUpToTheHighWatermark() {
+        when(wordSearchRepository.countByGridSizeAndThemeAndPoolStatus(10, THEME, WordSearchPoolStatus.READY)).thenReturn(1L);
+
+        assertThat(poolService.claim(10, THEME)).isNull();
+
+        ArgumentCaptor<List<WordSearch>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(wordSearchRepository).insert(inserted.capture());
+        assertThat(inserted.getValue()).hasSize(HIGH_WATERMARK - 1).allSatisfy(wordSearch -> {
+            assertThat(wordSearch.getPoolStatus()).isEqualTo(WordSearchPoolStatus.READY);
+            assertThat(wordSearch.getPoolExpiresAt()).isAfter(LocalDateTime.now().plusDays(6));
+            assertThat(wordSearch.getTheme()).isEqualTo(THEME);
+            assertThat(wordSearch.getGridSize()).isEqualTo(10);
+        });
+    }
+
+    @Test
+    void gridSizesOutsideThePoolAreNotClaimed() {
+        assertThat(poolService.isPooled(15)).isFalse();
+        assertThat(poolService.claim(15, THEME)).isNull();
+        verifyNoInteractions(mongoTemplate, wordSearchRepository);
+    }
+
+    @Test
+    void rejectsInvertedWatermarks() {
+        assertThatThrownBy(() -> new WordSearchPoolService(wordSearchRepository, mock(WordBankService.class), mongoTemplate,
+                new SimpleMeterRegistry(), Runnable::run, true, Set.of(10), 5, 5, Duration.ofDays(7)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
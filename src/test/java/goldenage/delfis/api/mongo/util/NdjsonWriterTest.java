@@ -0,0 +1,62 @@
+/*
+ * Classe NdjsonWriterTest
+ * Testes da escrita em NDJSON: uma linha por objeto e flush em lotes
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.mongo.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NdjsonWriterTest {
+
+    @Test
+    void writesOneJsonObjectPerLine() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long lines = NdjsonWriter.write(Stream.of(Map.of("id", 1), Map.of("id", 2)), new ObjectMapper(), outputStream);
+
+        assertThat(lines).isEqualTo(2);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo("{\"id\":1}\n{\"id\":2}\n");
+    }
+
+    @Test
+    void flushesInBatchesInsteadOfAfterEveryObject() throws IOException {
+        FlushCountingOutputStream outputStream = new FlushCountingOutputStream();
+
+        NdjsonWriter.write(IntStream.range(0, 250).mapToObj(i -> Map.of("id", i)), new ObjectMapper(), outputStream);
+
+        // Um flush a cada 100 linhas; o resto sai no close do generator. Com um flush por objeto seriam mais de 250.
+        assertThat(outputStream.flushes).isEqualTo(2);
+    }
+
+    @Test
+    void closesTheSourceStream() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        NdjsonWriter.write(Stream.of(Map.of("id", 1)).onClose(() -> closed.set(true)), new ObjectMapper(), new ByteArrayOutputStream());
+
+        assertThat(closed).isTrue();
+    }
+
+    private static class FlushCountingOutputStream extends ByteArrayOutputStream {
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
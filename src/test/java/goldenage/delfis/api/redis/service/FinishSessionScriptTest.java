@@ -0,0 +1,148 @@
+/*
+ * Classe FinishSessionScriptTest
+ * Testes do script finish-session.lua contra um Redis de verdade: bytes do SessionCodec, contadores por dia e XADD
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.util.SessionCodec;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.junit.jupiter.api.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Precisa de um Redis 6.2+ em SPRING_DATA_REDIS_HOST/PORT (padrão localhost:6379); sem ele os testes são ignorados.
+ * As chaves levam um prefixo aleatório e são apagadas no fim, então o teste pode rodar num Redis de desenvolvimento.
+ * */
+class FinishSessionScriptTest {
+    private static final RedisScript<Session> FINISH_SESSION =
+            RedisScript.of(new ClassPathResource("scripts/finish-session.lua"), Session.class);
+
+    private static final LocalDateTime INITIAL = LocalDateTime.of(2026, 10, 18, 23, 30);
+    private static final LocalDateTime FINAL = LocalDateTime.of(2026, 10, 19, 1, 0);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redis;
+
+    private String prefix;
+    private List<String> keys;
+
+    @BeforeAll
+    static void connect() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                Objects.requireNonNullElse(System.getenv("SPRING_DATA_REDIS_HOST"), "localhost"),
+                Integer.parseInt(Objects.requireNonNullElse(System.getenv("SPRING_DATA_REDIS_PORT"), "6379")));
+        if (System.getenv("SPRING_DATA_REDIS_PASSWORD") != null)
+            configuration.setPassword(System.getenv("SPRING_DATA_REDIS_PASSWORD"));
+
+        connectionFactory = new LettuceConnectionFactory(configuration,
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(2)).build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().close();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            Assumptions.abort("Redis indisponível: " + e.getMessage());
+        }
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        prefix = "test:" + UUID.randomUUID() + ":";
+        keys = List.of(prefix + "open", prefix + "heartbeat", prefix + "time", prefix + "presence", prefix + "events");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        redis.delete(keys);
+        redis.delete(prefix + "Session:abc");
+    }
+
+    @Test
+    void finishesTheOpenSessionAndSplitsTheTimeAtMidnight() {
+        openSession();
+
+        Session finished = finish("1");
+
+        assertThat(finished).isEqualTo(new Session("abc", 42, INITIAL, FINAL, null));
+        byte[] raw = redis.execute(connection -> connection.hashCommands().hGet(bytes(prefix + "Session:abc"), bytes(SessionCodec.RAW_FIELD)), true);
+        assertThat(SessionCodec.decode(raw)).isEqualTo(new Session("abc", 42, INITIAL, FINAL, null));
+        assertThat(redis.getExpire(prefix + "Session:abc")).isEqualTo(-1);
+
+        assertThat(redis.<String, String>opsForHash().entries(keys.get(2))).isEqualTo(Map.of(
+                SessionKeys.TOTAL_FIELD, "5400",
+                SessionKeys.dayField(INITIAL.toLocalDate().toEpochDay()), "1800",
+                SessionKeys.dayField(FINAL.toLocalDate().toEpochDay()), "3600"));
+
+        assertThat(redis.hasKey(keys.get(0))).isFalse();
+        assertThat(redis.opsForZSet().score(keys.get(1), "abc")).isNull();
+        assertThat(redis.opsForZSet().score(keys.get(3), "42")).isNull();
+
+        List<MapRecord<String, Object, Object>> events = redis.opsForStream().range(keys.get(4), Range.unbounded());
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getValue()).isEqualTo(Map.of(
+                "type", SessionStreamService.FINISH,
+                "sessionId", "abc",
+                "fkAppUserId", "42",
+                "initial", String.valueOf(INITIAL.toEpochSecond(ZoneOffset.UTC)),
+                "final", String.valueOf(FINAL.toEpochSecond(ZoneOffset.UTC))));
+
+        assertThat(finish("1")).isNull();
+    }
+
+    @Test
+    void skipsTheStreamWhenHistoryIsDisabled() {
+        openSession();
+
+        assertThat(finish("")).isNotNull();
+        assertThat(redis.hasKey(keys.get(4))).isFalse();
+    }
+
+    private void openSession() {
+        redis.execute(connection -> connection.hashCommands().hSet(bytes(prefix + "Session:abc"), bytes(SessionCodec.RAW_FIELD),
+                SessionCodec.encode(new Session("abc", 42, INITIAL, null, null))), true);
+        redis.expire(prefix + "Session:abc", Duration.ofHours(1));
+        redis.opsForValue().set(keys.get(0), "abc");
+        redis.opsForZSet().add(keys.get(1), "abc", 1);
+        redis.opsForZSet().add(keys.get(3), "42", 1);
+    }
+
+    private Session finish(String publish) {
+        return redis.execute(FINISH_SESSION, RedisSerializer.string(), SessionCodec.INSTANCE, keys,
+                String.valueOf(FINAL.toEpochSecond(ZoneOffset.UTC)), prefix + "Session:", "42", publish);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
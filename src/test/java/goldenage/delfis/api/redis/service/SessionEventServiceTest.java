@@ -0,0 +1,102 @@
+/*
+ * Classe SessionEventServiceTest
+ * Testes do envio de eventos de sessão em lote: regras por evento, refazer o lote quando o WATCH descarta o EXEC e o 409
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import goldenage.delfis.api.redis.model.SessionEvent;
+import goldenage.delfis.api.redis.model.SessionEventResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SessionEventServiceTest {
+    private static final long USER = 42;
+    private static final LocalDateTime START = LocalDateTime.now().minusHours(2).withNano(0);
+
+    private RedisConnection connection;
+    private SessionEventService sessionEventService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        connection = mock(RedisConnection.class, RETURNS_DEEP_STUBS);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+
+        sessionEventService = new SessionEventService(stringRedisTemplate, mock(SessionTimeService.class),
+                mock(ActiveUserService.class), mock(SessionStreamService.class), Duration.ofHours(1), true);
+    }
+
+    @Test
+    void appliesValidEventsAndRejectsTheOthersOneByOne() {
+        when(connection.closePipeline()).thenReturn(execResult());
+
+        List<SessionEventResult> results = sessionEventService.applyEvents(USER, List.of(
+                new SessionEvent(SessionEvent.Type.FINISH, START),
+                new SessionEvent(SessionEvent.Type.START, START),
+                new SessionEvent(SessionEvent.Type.START, START.plusMinutes(5)),
+                new SessionEvent(SessionEvent.Type.FINISH, START.minusMinutes(1)),
+                new SessionEvent(SessionEvent.Type.FINISH, START.plusMinutes(30)),
+                new SessionEvent(SessionEvent.Type.START, LocalDateTime.now().plusHours(1))));
+
+        assertThat(results).extracting(SessionEventResult::applied).containsExactly(false, true, false, false, true, false);
+        assertThat(results.get(4).sessionId()).isEqualTo(results.get(1).sessionId());
+        verify(connection, times(1)).exec();
+    }
+
+    @Test
+    void replaysTheBatchWhenTheExecIsDiscarded() {
+        when(connection.closePipeline()).thenReturn(new ArrayList<>(), execResult());
+
+        List<SessionEventResult> results = sessionEventService.applyEvents(USER, List.of(new SessionEvent(SessionEvent.Type.START, START)));
+
+        assertThat(results).extracting(SessionEventResult::applied).containsExactly(true);
+        verify(connection, times(2)).watch(any());
+        verify(connection, times(2)).exec();
+    }
+
+    @Test
+    void givesUpWithConflictAfterThreeDiscardedExecs() {
+        List<Object> discarded = new ArrayList<>();
+        discarded.add(null);
+        when(connection.closePipeline()).thenReturn(discarded);
+
+        assertThatThrownBy(() -> sessionEventService.applyEvents(USER, List.of(new SessionEvent(SessionEvent.Type.START, START))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(connection, times(3)).exec();
+    }
+
+    @Test
+    void skipsTheTransactionWhenNoEventApplies() {
+        List<SessionEventResult> results = sessionEventService.applyEvents(USER, List.of(new SessionEvent(SessionEvent.Type.FINISH, START)));
+
+        assertThat(results).extracting(SessionEventResult::applied).containsExactly(false);
+        verify(connection).unwatch();
+        verify(connection, never()).multi();
+    }
+
+    /**
+     * @return resultado do pipeline com o EXEC aplicado: a lista de respostas da transação por último
+     */
+    private static List<Object> execResult() {
+        return List.of(List.of());
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Classe SessionServiceTest
+ * Testes do índice de sessões no Redis: inserção com o ponteiro da sessão aberta, montagem inicial, sweeper das sessões abandonadas,
+ * paginação e exportação
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import goldenage.delfis.api.mongo.model.CursorPage;
+import goldenage.delfis.api.mongo.util.NdjsonWriter;
+import goldenage.delfis.api.redis.model.Session;
+import goldenage.delfis.api.redis.repository.SessionRepository;
+import goldenage.delfis.api.redis.util.SessionKeys;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SessionServiceTest {
+    private static final long USER = 42;
+
+    private final SessionRepository sessionRepository = mock(SessionRepository.class);
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+    private final SessionTimeService sessionTimeService = mock(SessionTimeService.class);
+
+    private SessionService sessionService(boolean sweeperEnabled) {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(sessionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        return new SessionService(sessionRepository, stringRedisTemplate, sessionTimeService, mock(ActiveUserService.class),
+                mock(PresenceService.class), mock(SessionStreamService.class), Duration.ofMinutes(10), Duration.ofHours(1), 500, sweeperEnabled);
+    }
+
+    @Test
+    void insertSessionTakesTheOpenPointerAndIndexesByStart() {
+        SessionService sessionService = sessionService(true);
+        LocalDateTime start = LocalDateTime.now().minusMinutes(5);
+        when(valueOperations.setIfAbsent(eq(SessionKeys.openSession(USER)), any(), eq(Duration.ofHours(1)))).thenReturn(true);
+
+        Session saved = sessionService.insertSession(new Session(null, USER, start, null, null));
+
+        assertThat(saved.getId()).isNotNull();
+        assertThat(saved.getInitialDatetime()).isEqualTo(start.truncatedTo(ChronoUnit.SECONDS));
+        assertThat(saved.getTimeToLive()).isEqualTo(Duration.ofHours(1).toSeconds());
+        verify(valueOperations).setIfAbsent(SessionKeys.openSession(USER), saved.getId(), Duration.ofHours(1));
+        verify(zSetOperations).add(SessionKeys.userSessions(USER), saved.getId(), SessionKeys.score(saved.getInitialDatetime()));
+        verify(zSetOperations).add(eq(SessionKeys.HEARTBEATS), eq(saved.getId()), anyDouble());
+    }
+
+    @Test
+    void insertSessionRefusesASecondOpenSession() {
+        SessionService sessionService = sessionService(true);
+        // SETNX perdido: o ponteiro já aponta para a sessão aberta de outra requisição
+        when(valueOperations.setIfAbsent(eq(SessionKeys.openSession(USER)), any(), any(Duration.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> sessionService.insertSession(new Session(null, USER, LocalDateTime.now(), null, null)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(sessionRepository, never()).save(any());
+        verify(zSetOperations, never()).add(any(), any(), anyDouble());
+        verify(stringRedisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void insertSessionReleasesThePointerWhenTheSaveFails() {
+        SessionService sessionService = sessionService(true);
+        when(valueOperations.setIfAbsent(eq(SessionKeys.openSession(USER)), any(), any(Duration.class))).thenReturn(true);
+        when(sessionRepository.save(any())).thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThatThrownBy(() -> sessionService.insertSession(new Session(null, USER, LocalDateTime.now(), null, null)))
+                .isInstanceOf(QueryTimeoutException.class);
+        verify(stringRedisTemplate).delete(SessionKeys.openSession(USER));
+        verify(zSetOperations, never()).add(any(), any(), anyDouble());
+    }
+
+    @Test
+    void finishedSessionIsIndexedWithoutTouchingTheOpenPointer() {
+        SessionService sessionService = sessionService(true);
+        LocalDateTime start = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+
+        Session saved = sessionService.insertSession(new Session("abc", USER, start, start.plusMinutes(30), null));
+
+        verifyNoInteractions(valueOperations);
+        assertThat(saved.getTimeToLive()).isNull();
+        verify(zSetOperations).add(SessionKeys.userSessions(USER), "abc", SessionKeys.score(start));
+        verify(zSetOperations, never()).add(eq(SessionKeys.HEARTBEATS), any(), anyDouble());
+    }
+
+    @Test
+    void unfinishedSessionIsReadThroughTheOpenPointer() {
+        SessionService sessionService = sessionService(true);
+        Session open = new Session("abc", USER, LocalDateTime.now(), null, 3600L);
+        when(valueOperations.get(SessionKeys.openSession(USER))).thenReturn("abc");
+        when(sessionRepository.findById("abc")).thenReturn(Optional.of(open));
+
+        assertThat(sessionService.getUnfinishedSessionByFkAppUserById(USER)).isSameAs(open);
+        assertThat(sessionService.getUnfinishedSessionByFkAppUserById(USER + 1)).isNull();
+    }
+
+    @Test
+    void backfillSeedsOpenSessionsWithTheCurrentTimeInsteadOfTheirStart() {
+        SessionService sessionService = sessionService(true);
+        Session open = new Session("abc", USER, LocalDateTime.now().minusHours(3), null, null);
+        when(sessionRepository.findAll()).thenReturn(List.of(open));
+
+        long before = System.currentTimeMillis();
+        sessionService.init();
+
+        ArgumentCaptor<Double> score = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOperations).addIfAbsent(eq(SessionKeys.HEARTBEATS), eq("abc"), score.capture());
+        assertThat(score.getValue()).isGreaterThanOrEqualTo(before);
+        verify(valueOperations).setIfAbsent(SessionKeys.openSession(USER), "abc", Duration.ofHours(1));
+        assertThat(open.getTimeToLive()).isEqualTo(Duration.ofHours(1).toSeconds());
+    }
+
+    @Test
+    void backfillLeavesOpenSessionsOutOfTheSweeperWhileItIsDisabled() {
+        SessionService sessionService = sessionService(false);
+        Session open = new Session("abc", USER, LocalDateTime.now().minusHours(3), null, null);
+        when(sessionRepository.findAll()).thenReturn(List.of(open));
+
+        sessionService.init();
+
+        verify(zSetOperations, never()).addIfAbsent(eq(SessionKeys.HEARTBEATS), any(), anyDouble());
+        verify(valueOperations).setIfAbsent(SessionKeys.openSession(USER), "abc");
+        assertThat(open.getTimeToLive()).isNull();
+    }
+
+    @Test
+    void disabledSweeperClosesNothing() {
+        sessionService(false).closeAbandonedSessions();
+
+        verifyNoInteractions(zSetOperations, sessionRepository, sessionTimeService);
+    }
+
+    @Test
+    void sweeperClosesAbandonedSessionsAtTheirLastHeartbeat() {
+        SessionService sessionService = sessionService(true);
+        LocalDateTime initial = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime lastHeartbeat = initial.plusMinutes(25);
+        stubStaleHeartbeat("abc", lastHeartbeat);
+        when(sessionRepository.findById("abc")).thenReturn(Optional.of(new Session("abc", USER, initial, null, 3600L)));
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(1L);
+
+        sessionService.closeAbandonedSessions();
+
+        ArgumentCaptor<Session> closed = ArgumentCaptor.forClass(Session.class);
+        verify(sessionTimeService).addSession(closed.capture());
+        assertThat(closed.getValue().getFinalDatetime()).isEqualTo(lastHeartbeat);
+        assertThat(closed.getValue().getTimeToLive()).isNull();
+        verify(zSetOperations).remove(SessionKeys.HEARTBEATS, "abc");
+    }
+
+    @Test
+    void sweeperLeavesTheSessionToAConcurrentFinish() {
+        SessionService sessionService = sessionService(true);
+        LocalDateTime initial = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        stubStaleHeartbeat("abc", initial.plusMinutes(25));
+        when(sessionRepository.findById("abc")).thenReturn(Optional.of(new Session("abc", USER, initial, null, 3600L)));
+        // O compare-and-delete do ponteiro falha: o /finish já levou a sessão
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(0L);
+
+        sessionService.closeAbandonedSessions();
+
+        verify(sessionRepository, never()).save(any());
+        verifyNoInteractions(sessionTimeService);
+        verify(zSetOperations).remove(SessionKeys.HEARTBEATS, "abc");
+    }
+
+    @Test
+    void pagingKeepsTheSessionsThatShareTheBoundaryScore() {
+        SessionService sessionService = sessionService(true);
+        LocalDateTime start = LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        // Três sessões no mesmo segundo: a fronteira da página de 2 cai no meio do empate
+        List<Session> sessions = List.of(
+                new Session("a", USER, start, null, null),
+                new Session("b", USER, start.plusSeconds(1), null, null),
+                new Session("c", USER, start.plusSeconds(1), null, null),
+                new Session("d", USER, start.plusSeconds(1), null, null),
+                new Session("e", USER, start.plusSeconds(2), null, null));
+        stubUserSessions(sessions);
+
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Session> page = sessionService.getSessionsPage(USER, null, cursor, 2);
+            page.items().forEach(session -> ids.add(session.getId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(ids).containsExactly("e", "d", "c", "b", "a");
+    }
+
+    @Test
+    void rejectsMalformedSessionCursors() {
+        SessionService sessionService = sessionService(true);
+        stubUserSessions(List.of());
+
+        for (String cursor : List.of("1729300000000", "abc:x", "1729300000000:", "-1:x"))
+            assertThatThrownBy(() -> sessionService.getSessionsPage(USER, null, cursor, 2))
+                    .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exportWritesEverySessionOnceAcrossPages() throws Exception {
+        SessionService sessionService = sessionService(true);
+        LocalDateTime start = LocalDateTime.now().minusDays(30).truncatedTo(ChronoUnit.SECONDS);
+        // Grupos de 7 sessões por segundo, para que as páginas de exportação terminem no meio de empates
+        List<Session> sessions = IntStream.range(0, 1203)
+                .mapToObj(i -> new Session(String.format("s%04d", i), USER, start.plusSeconds(i / 7), i % 2 == 0 ? start.plusDays(1) : null, null))
+                .toList();
+        stubUserSessions(sessions);
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long lines = NdjsonWriter.write(sessionService.streamSessions(USER, null), objectMapper, output);
+
+        List<String> exported = output.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, Session.class).getId();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+        assertThat(lines).isEqualTo(sessions.size());
+        assertThat(exported).doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(sessions.stream().map(Session::getId).toList());
+        assertThat(sessionService.streamSessions(USER, true).count()).isEqualTo(602);
+    }
+
+    private void stubStaleHeartbeat(String sessionId, LocalDateTime heartbeat) {
+        double score = heartbeat.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        when(zSetOperations.rangeByScoreWithScores(eq(SessionKeys.HEARTBEATS), anyDouble(), anyDouble(), anyLong(), anyLong()))
+                .thenReturn(Set.of(ZSetOperations.TypedTuple.of(sessionId, score)));
+    }
+
+    /*
+     * Sorted set do usuário em memória, com a ordem do ZREVRANGEBYSCORE: score decrescente e, nos empates,
+     * membro decrescente.
+     * */
+    @SuppressWarnings("unchecked")
+    private void stubUserSessions(List<Session> sessions) {
+        List<ZSetOperations.TypedTuple<String>> index = sessions.stream()
+                .map(session -> ZSetOperations.TypedTuple.of(session.getId(), SessionKeys.score(session.getInitialDatetime())))
+                .sorted(Comparator.comparing(ZSetOperations.TypedTuple<String>::getScore)
+                        .thenComparing(ZSetOperations.TypedTuple::getValue).reversed())
+                .toList();
+        String key = SessionKeys.userSessions(USER);
+
+        when(zSetOperations.reverseRangeByScoreWithScores(eq(key), anyDouble(), anyDouble())).thenAnswer(invocation ->
+                reverseRangeByScore(index, invocation.getArgument(1), invocation.getArgument(2), Long.MAX_VALUE));
+        when(zSetOperations.reverseRangeByScoreWithScores(eq(key), anyDouble(), anyDouble(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            assertThat((long) invocation.getArgument(3)).isZero();
+            return reverseRangeByScore(index, invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(4));
+        });
+        when(sessionRepository.findAllById(any())).thenAnswer(invocation -> {
+            Set<String> ids = new HashSet<>();
+            ((Iterable<String>) invocation.getArgument(0)).forEach(ids::add);
+            return sessions.stream().filter(session -> ids.contains(session.getId())).toList();
+        });
+    }
+
+    private static Set<ZSetOperations.TypedTuple<String>> reverseRangeByScore(List<ZSetOperations.TypedTuple<String>> index,
+                                                                             double min, double max, long count) {
+        Set<ZSetOperations.TypedTuple<String>> range = new LinkedHashSet<>();
+        index.stream().filter(tuple -> tuple.getScore() >= min && tuple.getScore() <= max).limit(count).forEach(range::add);
+        return range;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Classe SessionCodecBenchmark
+ * Benchmarks JMH da codificação da entidade Session: codec binário, JSON e o hash antigo do repository
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import goldenage.delfis.api.redis.model.Session;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.convert.MappingRedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+import org.springframework.data.redis.core.mapping.RedisMappingContext;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Rodar com: mvn -Pbenchmark test-compile exec:exec -Djmh.args="SessionCodecBenchmark"
+ * Os bytes por sessão de cada formato são impressos no setup; o "-prof gc" do profile mostra o que cada um aloca.
+ * O formato hash é o que o SessionRepository gravava antes do codec: um campo por propriedade, datas em ISO-8601
+ * e o _class, medido como a soma de nomes e valores dos campos.
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class SessionCodecBenchmark {
+    @Param({"true", "false"})
+    private boolean finished;
+
+    private Session session;
+    private ObjectMapper objectMapper;
+    private MappingRedisConverter hashConverter;
+    private byte[] binary;
+    private byte[] json;
+    private RedisData hash;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LocalDateTime initialDatetime = LocalDateTime.of(2026, 10, 19, 8, 30, 15);
+        session = new Session("0f8fad5b-d9cb-469f-a165-70867728950e", 123456L, initialDatetime,
+                finished ? initialDatetime.plusMinutes(42) : null, null);
+
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        hashConverter = new MappingRedisConverter(new RedisMappingContext());
+        hashConverter.afterPropertiesSet();
+
+        binary = SessionCodec.encode(session);
+        json = objectMapper.writeValueAsBytes(session);
+        hash = writeHash();
+
+        int hashBytes = 0;
+        for (Map.Entry<String, byte[]> field : hash.getBucket().asMap().entrySet())
+            hashBytes += field.getKey().length() + field.getValue().length;
+        System.out.printf("%nBytes por sessão (finished=%s): binário=%d, json=%d, hash=%d (%d campos)%n",
+                finished, binary.length, json.length, hashBytes, hash.getBucket().size());
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return SessionCodec.encode(session);
+    }
+
+    @Benchmark
+    public Session decodeBinary() {
+        return SessionCodec.decode(binary);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(session);
+    }
+
+    @Benchmark
+    public Session decodeJson() throws IOException {
+        return objectMapper.readValue(json, Session.class);
+    }
+
+    @Benchmark
+    public RedisData encodeHash() {
+        return writeHash();
+    }
+
+    @Benchmark
+    public Session decodeHash() {
+        return hashConverter.read(Session.class, hash);
+    }
+
+    private RedisData writeHash() {
+        RedisData redisData = new RedisData();
+        hashConverter.write(session, redisData);
+        return redisData;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Classe SessionCodecTest
+ * Testes do codec binário da entidade Session: ida e volta, layout lido pelos scripts Lua e sessões no formato antigo
+ * Autor: agent
+ * Data: 19/10/2026
+ * */
+
+package goldenage.delfis.api.redis.util;
+
+import goldenage.delfis.api.redis.model.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionCodecTest {
+    private static final LocalDateTime INITIAL = LocalDateTime.of(2026, 10, 19, 8, 30, 15);
+    private static final LocalDateTime FINAL = LocalDateTime.of(2026, 10, 19, 9, 45, 0);
+
+    @Test
+    void roundTripsOpenAndFinishedSessions() {
+        Session open = new Session("sessão-1", 42, INITIAL, null, null);
+        Session finished = new Session("sessão-2", 42, INITIAL, FINAL, null);
+
+        assertThat(SessionCodec.decode(SessionCodec.encode(open))).isEqualTo(open);
+        assertThat(SessionCodec.decode(SessionCodec.encode(finished))).isEqualTo(finished);
+    }
+
+    @Test
+    void keepsTheFixedOffsetsUsedByTheLuaScripts() {
+        byte[] bytes = SessionCodec.encode(new Session("abc", 42, INITIAL, FINAL, null));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        assertThat(bytes).hasSize(26 + 3);
+        assertThat(buffer.get(0)).isEqualTo(SessionCodec.VERSION);
+        assertThat(buffer.get(SessionCodec.FLAGS_OFFSET)).isEqualTo(SessionCodec.FINISHED_FLAG);
+        assertThat(buffer.getLong(2)).isEqualTo(42);
+        assertThat(buffer.getLong(10)).isEqualTo(INITIAL.toEpochSecond(ZoneOffset.UTC));
+        assertThat(buffer.getLong(18)).isEqualTo(FINAL.toEpochSecond(ZoneOffset.UTC));
+        assertThat(new String(bytes, 26, 3, StandardCharsets.UTF_8)).isEqualTo("abc");
+    }
+
+    @Test
+    void rejectsUnknownVersions() {
+        byte[] bytes = SessionCodec.encode(new Session("abc", 42, INITIAL, null, null));
+        bytes[0] = 2;
+
+        assertThatThrownBy(() -> SessionCodec.decode(bytes)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> SessionCodec.decode(new byte[]{SessionCodec.VERSION})).isInstanceOf(SerializationException.class);
+        assertThat(SessionCodec.INSTANCE.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    void readsRawAndLegacyHashes() {
+        Session session = new Session("abc", 42, INITIAL, FINAL, null);
+
+        Session raw = SessionCodec.HashToSessionConverter.INSTANCE.convert(Map.of(SessionCodec.RAW_FIELD, SessionCodec.encode(session)));
+        Session legacy = SessionCodec.HashToSessionConverter.INSTANCE.convert(Map.of(
+                "id", bytes("abc"),
+                "fkAppUserId", bytes("42"),
+                "initialDatetime", bytes("2026-10-19T08:30:15"),
+                "finalDatetime", bytes("2026-10-19T09:45"),
+                "_class", bytes(Session.class.getName())));
+
+        assertThat(raw).isEqualTo(session);
+        assertThat(legacy).isEqualTo(session);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}